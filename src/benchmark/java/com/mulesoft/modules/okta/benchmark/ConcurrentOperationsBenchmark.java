@@ -0,0 +1,17 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.benchmark;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * The operations of {@link OperationsBenchmark} with 16 calling threads, to
+ * measure contention in the connection pool, the coalescer and the metrics.
+ *
+ * @author MuleSoft, Inc.
+ */
+@Threads(16)
+public class ConcurrentOperationsBenchmark extends OperationsBenchmark {
+}
@@ -0,0 +1,94 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mulesoft.modules.okta.model.Group;
+import com.mulesoft.modules.okta.model.Session;
+import com.mulesoft.modules.okta.model.User;
+
+/**
+ * Throughput and latency of the connector operations against a local stub org,
+ * with one calling thread. rawGetUser is the same call without the connector,
+ * so the difference with getUser is the overhead of the connector itself. Run
+ * with -prof gc to also measure the allocation rate.
+ *
+ * @author MuleSoft, Inc.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class OperationsBenchmark {
+
+    @Benchmark
+    public String rawGetUser(StubOrg org, UserCursor users) throws IOException {
+        return org.rawGet("/users/" + users.nextId());
+    }
+
+    @Benchmark
+    public String getUser(StubOrg org, UserCursor users) throws IOException {
+        return org.connector.getUser(users.nextId());
+    }
+
+    @Benchmark
+    public User getUserTyped(StubOrg org, UserCursor users) throws IOException {
+        return org.connector.getUserTyped(users.nextId(), null);
+    }
+
+    @Benchmark
+    public User getUserTypedSelectedFields(StubOrg org, UserCursor users) throws IOException {
+        return org.connector.getUserTyped(users.nextId(), "id,status,profile.login");
+    }
+
+    @Benchmark
+    public String getUserGroups(StubOrg org, UserCursor users) throws IOException {
+        return org.connector.getUserGroups(users.nextId());
+    }
+
+    @Benchmark
+    public List<Group> getUserGroupsTyped(StubOrg org, UserCursor users) throws IOException {
+        return org.connector.getUserGroupsTyped(users.nextId(), null);
+    }
+
+    @Benchmark
+    public String listUsersPage(StubOrg org, UserCursor users) throws IOException {
+        return org.connector.listUsers(null, 200, null, users.nextId());
+    }
+
+    @Benchmark
+    public List<User> listUsersPageTyped(StubOrg org, UserCursor users) throws IOException {
+        return org.connector.listUsersTyped(null, 200, null, users.nextId(), null);
+    }
+
+    @Benchmark
+    public String activateUser(StubOrg org, UserCursor users) throws IOException {
+        return org.connector.activateUser(users.nextId(), false);
+    }
+
+    @Benchmark
+    public Session createSession(StubOrg org) throws IOException {
+        return org.connector.createSessionTyped("{\"sessionToken\":\"token\"}", null);
+    }
+
+    @Benchmark
+    public String extendSession(StubOrg org) throws IOException {
+        return org.connector.extendSession(org.session);
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.benchmark;
+
+import java.io.IOException;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.mulesoft.modules.okta.OktaConnector;
+import com.mulesoft.modules.okta.config.OktaConnectorConfig;
+import com.mulesoft.modules.okta.metrics.MetricsLevel;
+import com.mulesoft.modules.okta.stub.OktaStubServer;
+
+/**
+ * A stub org and a connector configured against it, shared by all the threads of a benchmark.
+ *
+ * @author MuleSoft, Inc.
+ */
+@State(Scope.Benchmark)
+public class StubOrg {
+
+    static final int USERS = 10000;
+
+    /**
+     * Latency added by the stub to every answer, in milliseconds
+     */
+    @Param({ "0" })
+    public long latency;
+
+    /**
+     * Metrics level of the connector, to measure the cost of instrumentation
+     */
+    @Param({ "COUNTERS", "FULL" })
+    public String metricsLevel;
+
+    OktaStubServer server;
+    OktaConnector connector;
+    CloseableHttpClient http;
+    String session;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = new OktaStubServer(USERS).setLatency(latency).start();
+        OktaConnectorConfig config = server.createConfig();
+        config.setMetricsLevel(MetricsLevel.valueOf(metricsLevel));
+        config.setMetricsJmxEnabled(false);
+        // benchmarks measure the calls, not the rate limiter or the bulkheads
+        config.setRateLimitEnabled(false);
+        config.setUsersConcurrency(0);
+        config.setLifecycleConcurrency(0);
+        config.setSessionsConcurrency(0);
+        connector = new OktaConnector();
+        connector.setConfig(config);
+        http = HttpClients.createMinimal();
+        session = connector.createSessionTyped("{\"sessionToken\":\"token\"}", null).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        http.close();
+        connector.stop();
+        server.stop();
+    }
+
+    /**
+     * GET without the connector, the baseline its overhead is measured against.
+     */
+    String rawGet(String path) throws IOException {
+        HttpGet get = new HttpGet("http://" + server.getHost() + "/api/v1" + path);
+        get.addHeader("Authorization", "SSWS stub");
+        get.addHeader("Accept", "application/json");
+        CloseableHttpResponse response = http.execute(get);
+        try {
+            return EntityUtils.toString(response.getEntity(), "UTF-8");
+        } finally {
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.mulesoft.modules.okta.stub.OktaStubServer;
+
+/**
+ * Walks the users of the stub org, from a different offset in every thread so
+ * concurrent threads do not coalesce on the same user.
+ *
+ * @author MuleSoft, Inc.
+ */
+@State(Scope.Thread)
+public class UserCursor {
+
+    private int next = ThreadLocalRandom.current().nextInt(StubOrg.USERS);
+
+    String nextId() {
+        next = (next + 1) % StubOrg.USERS;
+        return OktaStubServer.userId(next);
+    }
+}
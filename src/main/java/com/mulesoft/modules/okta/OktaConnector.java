@@ -3,20 +3,80 @@
  * a copy of which has been included with this distribution in the LICENSE.md file.
  */
 package com.mulesoft.modules.okta;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+import javax.inject.Inject;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.mule.api.MuleContext;
+import org.mule.api.NestedProcessor;
 import org.mule.api.annotations.Config;
 import org.mule.api.annotations.Connector;
+import org.mule.api.annotations.Paged;
 import org.mule.api.annotations.Processor;
+import org.mule.api.annotations.Source;
+import org.mule.api.annotations.lifecycle.Stop;
 import org.mule.api.annotations.param.Default;
 import org.mule.api.annotations.param.Optional;
-import org.mule.api.annotations.rest.HttpMethod;
-import org.mule.api.annotations.rest.RestCall;
-import org.mule.api.annotations.rest.RestExceptionOn;
-import org.mule.api.annotations.rest.RestQueryParam;
-import org.mule.api.annotations.rest.RestUriParam;
+import org.mule.api.callback.SourceCallback;
+import org.mule.api.config.MuleProperties;
+import org.mule.api.store.ObjectStore;
+import org.mule.api.store.ObjectStoreManager;
+import org.mule.streaming.PagingConfiguration;
+import org.mule.streaming.ProviderAwarePagingDelegate;
 
+import com.mulesoft.modules.okta.bulk.BulkExecutor;
+import com.mulesoft.modules.okta.bulk.BulkItemResult;
+import com.mulesoft.modules.okta.bulk.BulkLifecycleResult;
+import com.mulesoft.modules.okta.bulk.BulkUserOperation;
+import com.mulesoft.modules.okta.bulk.LifecycleAction;
+import com.mulesoft.modules.okta.bulk.LifecycleTask;
+import com.mulesoft.modules.okta.bulk.ProvisioningTask;
+import com.mulesoft.modules.okta.cache.ProfileStateCache;
+import com.mulesoft.modules.okta.cache.SessionCache;
+import com.mulesoft.modules.okta.cache.UserCache;
+import com.mulesoft.modules.okta.client.AsyncOktaClient;
+import com.mulesoft.modules.okta.client.JsonArrayReader;
+import com.mulesoft.modules.okta.client.OktaClient;
+import com.mulesoft.modules.okta.client.OktaResponse;
+import com.mulesoft.modules.okta.client.OrgContext;
 import com.mulesoft.modules.okta.config.OktaConnectorConfig;
+import com.mulesoft.modules.okta.export.UserExport;
+import com.mulesoft.modules.okta.jwt.InvalidTokenException;
+import com.mulesoft.modules.okta.jwt.KeySetCache;
+import com.mulesoft.modules.okta.jwt.KeySetSource;
+import com.mulesoft.modules.okta.jwt.TokenVerifier;
+import com.mulesoft.modules.okta.metrics.MetricsRegistry;
+import com.mulesoft.modules.okta.model.AppLink;
+import com.mulesoft.modules.okta.model.AuthnResult;
+import com.mulesoft.modules.okta.model.FieldSelection;
+import com.mulesoft.modules.okta.model.Group;
+import com.mulesoft.modules.okta.model.JsonValues;
+import com.mulesoft.modules.okta.model.ModelReader;
+import com.mulesoft.modules.okta.model.OktaObject;
+import com.mulesoft.modules.okta.model.Session;
+import com.mulesoft.modules.okta.model.User;
+import com.mulesoft.modules.okta.paging.UserPagingDelegate;
+import com.mulesoft.modules.okta.replica.GroupReplica;
+import com.mulesoft.modules.okta.replica.MembershipIndex;
+import com.mulesoft.modules.okta.resilience.RetryPolicy;
+import com.mulesoft.modules.okta.source.SourcePosition;
+import com.mulesoft.modules.okta.source.WatermarkStore;
 
 /**
  * Okta Anypoint Connector
@@ -25,12 +85,35 @@ import com.mulesoft.modules.okta.config.OktaConnectorConfig;
  * @author MuleSoft, Inc.
  */
 @Connector(name="okta", schemaVersion="1.0", friendlyName="Okta", minMuleVersion="3.5")
-public abstract class OktaConnector
+public class OktaConnector
 {
 
+	private static final Log logger = LogFactory.getLog(OktaConnector.class);
+
 	@Config
 	OktaConnectorConfig config;
 
+	private OktaClient client;
+
+	private final ConcurrentMap<String, OktaClient> orgClients = new ConcurrentHashMap<String, OktaClient>();
+
+	private AsyncOktaClient asyncClient;
+
+	@Inject
+	private MuleContext muleContext;
+
+	private UserCache userCache;
+
+	private SessionCache sessionCache;
+
+	private ProfileStateCache profileStates;
+
+	private GroupReplica groupReplica;
+
+	private final ConcurrentMap<String, KeySetCache> keySets = new ConcurrentHashMap<String, KeySetCache>();
+
+	private ExecutorService bulkPool;
+
     /**
      * Create new user
      *
@@ -42,12 +125,12 @@ public abstract class OktaConnector
      * @exception IOException if the call fails
      */
     @Processor
-    @RestCall(uri="https://{host}/api/{version}/users",
-    		  method=HttpMethod.POST, 
-    		  contentType="application/json", 
-    		  exceptions={@RestExceptionOn(expression="#[message.inboundProperties['http.status'] > 206]")})
-    public abstract String createUser(@Default("#[message.payload]") String profile,
-    								  @RestQueryParam("activate") @Default("false") boolean activate) throws IOException;
+    public String createUser(@Default("#[message.payload]") String profile,
+    						 @Default("false") boolean activate) throws IOException {
+    	Map<String, Object> params = new LinkedHashMap<String, Object>();
+    	params.put("activate", activate);
+    	return call("POST", "/users", params, profile);
+    }
 
     /**
      * Get user
@@ -60,11 +143,9 @@ public abstract class OktaConnector
      * @throws IOException
      */
     @Processor
-    @RestCall(uri="https://{host}/api/{version}/users/{id}",
-    		  method=HttpMethod.GET, 
-    		  contentType="application/json", 
-    		  exceptions={@RestExceptionOn(expression="#[message.inboundProperties['http.status'] > 206]")})
-    public abstract String getUser(@RestUriParam("id") String id) throws IOException;
+    public String getUser(String id) throws IOException {
+        return cachedGet(id, "", "/users/" + OktaClient.segment(id));
+    }
 
     /**
      * List users
@@ -80,15 +161,182 @@ public abstract class OktaConnector
      * @throws IOException
      */
     @Processor
-    @RestCall(uri="https://{host}/api/{version}/users",
-    		  method=HttpMethod.GET, 
-    		  contentType="application/json", 
-    		  exceptions={@RestExceptionOn(expression="#[message.inboundProperties['http.status'] > 206]")})
-    public abstract String listUsers(@RestQueryParam("q") @Optional String query,
-    								 @RestQueryParam("limit") @Default("10000") int limit,
-    								 @RestQueryParam("filter") @Optional String filter,
-    								 @RestQueryParam("after") @Optional String after) throws IOException;
+    public String listUsers(@Optional String query,
+    						@Default("10000") int limit,
+    						@Optional String filter,
+    						@Optional String after) throws IOException {
+    	Map<String, Object> params = new LinkedHashMap<String, Object>();
+    	params.put("q", query);
+    	params.put("limit", limit);
+    	params.put("filter", filter);
+    	params.put("after", after);
+    	return get("/users", params);
+    }
+
+    /**
+     * List users, following the pagination cursors returned by Okta. Users are handed downstream one at a time
+     * as the pages are read; use a foreach with a batchSize to process them in fixed-size chunks.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:list-users-streaming}
+     *
+     * @param query Searches firstName, lastName, and email attributes of users for matching value
+     * @param filter Filter expression for users
+     * @param prefetch Fetches the next page in the background while the current one is being processed
+     * @param pagingConfiguration Paging configuration, the fetch size is used as the page size requested from Okta
+     *
+     * @return Iterator of User objects
+     * @throws IOException
+     */
+    @Processor
+    @Paged
+    public ProviderAwarePagingDelegate<String, OktaConnector> listUsersStreaming(@Optional String query,
+    		@Optional String filter,
+    		@Default("false") boolean prefetch,
+    		PagingConfiguration pagingConfiguration) throws IOException {
+    	Map<String, Object> params = new LinkedHashMap<String, Object>();
+    	params.put("q", query);
+    	params.put("limit", pagingConfiguration.getFetchSize());
+    	params.put("filter", filter);
+    	return new UserPagingDelegate(getClient(), getClient().url("/users", params), prefetch);
+    }
     
+    /**
+     * Emits the users that changed since the last poll, one message per user. Each poll lists /users with a
+     * "lastUpdated ge" filter on the watermark, which is the latest lastUpdated seen so far, and skips the users
+     * already emitted at that exact time. The watermark is kept in an object store, so a restarted application
+     * resumes where it left off. A failed poll is logged and retried after a backoff; the users it emitted
+     * before failing are emitted again.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:poll-user-changes}
+     *
+     * @param callback The callback used to emit the users
+     * @param filter Additional filter expression for users, combined with the lastUpdated filter
+     * @param since Initial watermark, e.g. 2015-01-01T00:00:00.000Z; all users are emitted on the first poll when empty
+     * @param pollingInterval Time between polls, in milliseconds
+     * @param pageSize Number of users requested per page
+     * @param watermarkKey Key of the watermark in the object store
+     * @param objectStore Object store for the watermark; a persistent store of the application when not set
+     * @throws Exception if the object store cannot be looked up
+     */
+    @Source
+    public void pollUserChanges(SourceCallback callback,
+    							@Optional String filter,
+    							@Optional String since,
+    							@Default("60000") long pollingInterval,
+    							@Default("200") int pageSize,
+    							@Default("okta-user-changes") String watermarkKey,
+    							@Optional ObjectStore<Serializable> objectStore) throws Exception {
+        WatermarkStore watermarks = new WatermarkStore(objectStore != null ? objectStore : getDefaultObjectStore(), watermarkKey);
+        int failures = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            long delay = pollingInterval;
+            try {
+                SourcePosition position = SourcePosition.decode(watermarks.get(null), since);
+                SourcePosition latest = position.copy();
+
+                String changed = position.getTimestamp() != null ? "lastUpdated ge \"" + position.getTimestamp() + "\"" : null;
+                Map<String, Object> params = new LinkedHashMap<String, Object>();
+                params.put("limit", pageSize);
+                params.put("filter", filter == null ? changed : changed == null ? filter : "(" + filter + ") and " + changed);
+                UserPagingDelegate pages = new UserPagingDelegate(getClient(), getClient().url("/users", params), false);
+                try {
+                    for (List<String> page = pages.getPage(this); !page.isEmpty(); page = pages.getPage(this)) {
+                        for (String user : page) {
+                            String id = JsonValues.readField(user, "id");
+                            String lastUpdated = JsonValues.readField(user, "lastUpdated");
+                            if (position.isEmitted(lastUpdated, id)) {
+                                continue;
+                            }
+                            callback.process(user);
+                            latest.record(lastUpdated, id);
+                        }
+                    }
+                } finally {
+                    pages.close();
+                }
+                watermarks.set(latest.encode());
+                failures = 0;
+            } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                delay = failureDelay(++failures, e, pollingInterval);
+                logger.warn("Polling user changes failed, retrying in " + delay + " ms", e);
+            }
+
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Exports the users of the org to a local file, one JSON object per line (NDJSON). The groups and app links
+     * of each user are fetched in parallel and added as "groups" and "appLinks". The position in the result set
+     * is checkpointed in an object store, so an interrupted export resumes from the last checkpoint instead of
+     * starting over; the checkpoint is removed once the export completes.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:export-users}
+     *
+     * @param file Path of the file to write
+     * @param filter Filter expression for users
+     * @param includeGroups Add the groups of each user
+     * @param includeAppLinks Add the app links of each user
+     * @param pageSize Number of users requested per page
+     * @param concurrency Maximum number of users enriched at the same time
+     * @param checkpointInterval Number of pages written between two checkpoints
+     * @param checkpointKey Key of the checkpoint in the object store
+     * @param objectStore Object store for the checkpoint; a persistent store of the application when not set
+     * @return file, users, bytes and resumedFrom (the number of users written by a previous, interrupted run)
+     * @throws Exception if a call fails or the file cannot be written
+     */
+    @Processor
+    public Map<String, Object> exportUsers(String file,
+    									   @Optional String filter,
+    									   @Default("true") boolean includeGroups,
+    									   @Default("true") boolean includeAppLinks,
+    									   @Default("200") int pageSize,
+    									   @Default("8") int concurrency,
+    									   @Default("10") int checkpointInterval,
+    									   @Default("okta-user-export") String checkpointKey,
+    									   @Optional ObjectStore<Serializable> objectStore) throws Exception {
+    	Map<String, Object> params = new LinkedHashMap<String, Object>();
+    	params.put("limit", pageSize);
+    	params.put("filter", filter);
+        WatermarkStore checkpoints = new WatermarkStore(objectStore != null ? objectStore : getDefaultObjectStore(), checkpointKey);
+        return new UserExport(this, getClient().url("/users", params), Paths.get(file), checkpoints,
+                includeGroups, includeAppLinks, concurrency, checkpointInterval).run();
+    }
+
+    /**
+     * Runs the nested operations against another org. The org must be listed in the orgs of the configuration;
+     * it shares the connection pool and bulkheads of the default org but has its own rate limit budget, caches
+     * and metrics.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:with-org}
+     *
+     * @param org Host name of the org, e.g. "acme.okta.com"
+     * @param payload Payload passed to the first nested operation
+     * @param processors Nested operations, each receiving the result of the previous one
+     * @return result of the last nested operation
+     * @throws Exception if a nested operation fails
+     */
+    @Processor
+    public Object withOrg(String org, @Default("#[message.payload]") Object payload, List<NestedProcessor> processors) throws Exception {
+        String previous = OrgContext.enter(org.equals(config.getHost()) ? null : org);
+        try {
+            Object result = payload;
+            for (NestedProcessor processor : processors) {
+                result = processor.process(result);
+            }
+            return result;
+        } finally {
+            OrgContext.restore(previous);
+        }
+    }
+
     /**
      * Update a user profile and/or credentials.
      *
@@ -100,12 +348,100 @@ public abstract class OktaConnector
      * @throws IOException
      */
     @Processor
-    @RestCall(uri="https://{host}/api/{version}/users/{id}",
-    		  method=HttpMethod.PUT, 
-    		  contentType="application/json", 
-    		  exceptions={@RestExceptionOn(expression="#[message.inboundProperties['http.status'] > 206]")})
-    public abstract String updateUser(@Default("#[message.payload]") String profile,
-    								  @RestUriParam("id") String id) throws IOException;
+    public String updateUser(@Default("#[message.payload]") String profile, String id) throws IOException {
+        try {
+            String user = call("PUT", "/users/" + OktaClient.segment(id), null, profile);
+            rememberProfile(id, user);
+            return user;
+        } finally {
+            invalidateUser(id);
+        }
+    }
+
+    /**
+     * Updates only the profile attributes that differ from the last known profile of the user, with a partial
+     * update. The call is skipped when nothing changed. The last known profile is the one returned by the previous
+     * update-user or update-user-delta, or the cached user when the user cache is enabled; while it is unknown
+     * every attribute is sent. Attributes absent from the profile are left unchanged, set them to null to clear
+     * them. Credentials, when present, are always sent.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:update-user-delta}
+     *
+     * @param profile Updated user, in the format of update-user; other attributes than profile and credentials
+     *                are ignored, so a complete user can be passed
+     * @param id user ID
+     * @return id, updated (false when the call was skipped), changed (names of the attributes sent) and user
+     *         (the updated user, null when the call was skipped)
+     * @throws IOException if the call fails
+     */
+    @Processor
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> updateUserDelta(@Default("#[message.payload]") String profile, String id) throws IOException {
+        Map<String, Object> user = JsonValues.readObject(profile);
+        Map<String, Object> attributes = user.get("profile") instanceof Map
+                ? (Map<String, Object>) user.get("profile") : new LinkedHashMap<String, Object>();
+        ProfileStateCache states = getProfileStateCache();
+        String key = cacheKey(id);
+        if (!states.contains(key)) {
+            UserCache cache = getUserCache();
+            String cached = cache != null ? cache.get(key, "") : null;
+            if (cached != null) {
+                rememberProfile(id, cached);
+            }
+        }
+        Map<String, Object> changes = states.changes(key, attributes);
+        Map<String, Object> body = new LinkedHashMap<String, Object>();
+        if (!changes.isEmpty()) {
+            body.put("profile", changes);
+        }
+        if (user.get("credentials") != null) {
+            body.put("credentials", user.get("credentials"));
+        }
+        Map<String, Object> result = new LinkedHashMap<String, Object>();
+        result.put("id", id);
+        result.put("updated", !body.isEmpty());
+        result.put("changed", new ArrayList<String>(changes.keySet()));
+        if (body.isEmpty()) {
+            result.put("user", null);
+            return result;
+        }
+        try {
+            String updated = call("POST", "/users/" + OktaClient.segment(id), null, JsonValues.write(body));
+            rememberProfile(id, updated);
+            result.put("user", updated);
+            return result;
+        } catch (IOException e) {
+            // the update may have been applied
+            states.invalidate(key);
+            throw e;
+        } finally {
+            invalidateUser(id);
+        }
+    }
+
+    /**
+     * Creates or updates many users with bounded parallelism. Each profile is provisioned independently, so a
+     * bad profile only fails its own record. Results are streamed back in input order as they complete; calls
+     * share the connector's rate limit budget.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:bulk-provision-users}
+     *
+     * @param profiles Collection, array or iterator of users as JSON strings or maps, in the format of
+     *                 create-user or update-user. Updates must carry the user id in the "id" attribute
+     * @param operation Whether to create the users, update them or update only their changed attributes
+     *                  (DELTA, see update-user-delta)
+     * @param activate Executes activation lifecycle operation when creating the users
+     * @param concurrency Maximum number of calls in flight
+     *
+     * @return Iterator of per-item results, in input order
+     */
+    @Processor
+    public Iterator<BulkItemResult> bulkProvisionUsers(@Default("#[message.payload]") Object profiles,
+    												   @Default("CREATE") BulkUserOperation operation,
+    												   @Default("false") boolean activate,
+    												   @Default("4") int concurrency) {
+        return new BulkExecutor<Object>(getBulkPool(), BulkExecutor.iterator(profiles), new ProvisioningTask(this, operation, activate), concurrency);
+    }
 
     /**
      * Fetches appLinks for all direct or indirect (via group membership) assigned applications
@@ -118,14 +454,13 @@ public abstract class OktaConnector
      * @throws IOException
      */
     @Processor
-    @RestCall(uri="https://{host}/api/{version}/users/{id}/appLinks",
-    		  method=HttpMethod.GET, 
-    		  contentType="application/json", 
-    		  exceptions={@RestExceptionOn(expression="#[message.inboundProperties['http.status'] > 206]")})
-    public abstract String getUserAppLinks(@RestUriParam("id") String id) throws IOException;
+    public String getUserAppLinks(String id) throws IOException {
+        return cachedGet(id, "appLinks", "/users/" + OktaClient.segment(id) + "/appLinks");
+    }
     
     /**
-     * Fetches the groups of which the user is a member.
+     * Fetches the groups of which the user is a member. Answered from memory when the group replica is enabled
+     * and has loaded the user.
      *
      * {@sample.xml ../../../doc/okta-connector.xml.sample okta:get-user-groups}
      *
@@ -135,11 +470,55 @@ public abstract class OktaConnector
      * @throws IOException
      */
     @Processor
-    @RestCall(uri="https://{host}/api/{version}/users/{id}/groups",
-    		  method=HttpMethod.GET, 
-    		  contentType="application/json", 
-    		  exceptions={@RestExceptionOn(expression="#[message.inboundProperties['http.status'] > 206]")})
-    public abstract String getUserGroups(@RestUriParam("id") String id) throws IOException;   
+    public String getUserGroups(String id) throws IOException {
+        MembershipIndex replica = getGroupReplicaIndex();
+        String groups = replica != null ? replica.getGroupsJson(id) : null;
+        if (groups != null) {
+            return groups;
+        }
+        return cachedGet(id, "groups", "/users/" + OktaClient.segment(id) + "/groups");
+    }
+
+    /**
+     * Checks whether a user is a member of a group. Answered from the group replica when it is enabled and
+     * knows the user, otherwise from the groups of the user.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:is-group-member}
+     *
+     * @param id user id or login
+     * @param groupId group id
+     *
+     * @return true if the user is a member of the group
+     * @throws IOException
+     */
+    @Processor
+    public boolean isGroupMember(String id, String groupId) throws IOException {
+        MembershipIndex replica = getGroupReplicaIndex();
+        if (replica != null && replica.containsUser(id)) {
+            return replica.isMember(id, groupId);
+        }
+        for (Group group : ModelReader.readList(new ByteArrayInputStream(getUserGroups(id).getBytes("UTF-8")),
+                Group.class, FieldSelection.parse("id"))) {
+            if (groupId.equals(group.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the state of the group membership replica.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:get-group-replica-status}
+     *
+     * @return ready, stalenessMillis, lastRebuild, users, groups, estimatedBytes, appliedEvents and lastError;
+     *         empty when the replica is disabled
+     */
+    @Processor
+    public Map<String, Object> getGroupReplicaStatus() {
+        GroupReplica replica = getGroupReplica();
+        return replica != null ? replica.getStatus() : new LinkedHashMap<String, Object>();
+    }   
     
     /**
      * Activates a user. This operation can only be performed on users with a STAGED status. 
@@ -156,11 +535,9 @@ public abstract class OktaConnector
      * @throws IOException
      */
     @Processor
-    @RestCall(uri="https://{host}/api/{version}/users/{id}/lifecycle/activate",
-    		  method=HttpMethod.POST, 
-    		  contentType="application/json", 
-    		  exceptions={@RestExceptionOn(expression="#[message.inboundProperties['http.status'] > 206]")})
-    public abstract String activateUser(@RestUriParam("id") String id, @RestQueryParam("sendEmail") @Default("true") boolean sendEmail) throws IOException;
+    public String activateUser(String id, @Default("true") boolean sendEmail) throws IOException {
+        return lifecycle(id, "activate", "sendEmail", sendEmail);
+    }
     
     /**
      * Deactivates a user. This operation can only be performed on users that do not have a DEPROVISIONED status. 
@@ -176,11 +553,9 @@ public abstract class OktaConnector
      * @throws IOException
      */
     @Processor
-    @RestCall(uri="https://{host}/api/{version}/users/{id}/lifecycle/deactivate",
-    		  method=HttpMethod.POST, 
-    		  contentType="application/json", 
-    		  exceptions={@RestExceptionOn(expression="#[message.inboundProperties['http.status'] > 206]")})
-    public abstract String deactivateUser(@RestUriParam("id") String id) throws IOException;
+    public String deactivateUser(String id) throws IOException {
+        return lifecycle(id, "deactivate", null, null);
+    }
     
     /**
      * Unlocks a user with a LOCKED_OUT status and returns them to ACTIVE status. 
@@ -194,11 +569,9 @@ public abstract class OktaConnector
      * @throws IOException
      */
     @Processor
-    @RestCall(uri="https://{host}/api/{version}/users/{id}/lifecycle/unlock",
-    		  method=HttpMethod.POST, 
-    		  contentType="application/json", 
-    		  exceptions={@RestExceptionOn(expression="#[message.inboundProperties['http.status'] > 206]")})
-    public abstract String unlockUser(@RestUriParam("id") String id) throws IOException;
+    public String unlockUser(String id) throws IOException {
+        return lifecycle(id, "unlock", null, null);
+    }
       
     /**
      * Generates a one-time token (OTT) that can be used to reset a user's password. 
@@ -215,11 +588,9 @@ public abstract class OktaConnector
      * @throws IOException
      */
     @Processor
-    @RestCall(uri="https://{host}/api/{version}/users/{id}/lifecycle/reset_password",
-    		  method=HttpMethod.POST, 
-    		  contentType="application/json", 
-    		  exceptions={@RestExceptionOn(expression="#[message.inboundProperties['http.status'] > 206]")})
-    public abstract String resetPassword(@RestUriParam("id") String id, @RestQueryParam("sendEmail") @Default("true") boolean sendEmail) throws IOException;
+    public String resetPassword(String id, @Default("true") boolean sendEmail) throws IOException {
+        return lifecycle(id, "reset_password", "sendEmail", sendEmail);
+    }
     
     /**
      * This operation will transition the user to the status of PASSWORD_EXPIRED and the user will be required to 
@@ -235,12 +606,43 @@ public abstract class OktaConnector
      * @throws IOException
      */
     @Processor
-    @RestCall(uri="https://{host}/api/{version}/users/{id}/lifecycle/expire_password",
-    		  method=HttpMethod.POST, 
-    		  contentType="application/json", 
-    		  exceptions={@RestExceptionOn(expression="#[message.inboundProperties['http.status'] > 206]")})
-    public abstract String expirePassword(@RestUriParam("id") String id, @RestQueryParam("tempPassword") @Default("false") boolean tempPassword) throws IOException;
+    public String expirePassword(String id, @Default("false") boolean tempPassword) throws IOException {
+        return lifecycle(id, "expire_password", "tempPassword", tempPassword);
+    }
     
+    /**
+     * Applies a lifecycle operation to many users. Calls are pipelined with a bounded number in flight. Calls
+     * that Okta did not process (429, 503, connections that could not be opened) are retried with the backoff of
+     * the connector, which honors Retry-After and X-Rate-Limit-Reset; other failures are not retried, as
+     * ACTIVATE and RESET_PASSWORD would send their email twice.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:bulk-lifecycle}
+     *
+     * @param ids Collection, array or iterator of user ids
+     * @param action Lifecycle operation to apply
+     * @param sendEmail Sends an email to the user, for ACTIVATE and RESET_PASSWORD
+     * @param concurrency Maximum number of calls in flight
+     * @param maxRetries Number of times a call that Okta did not process is retried
+     *
+     * @return per-id outcomes and throughput statistics
+     */
+    @Processor
+    public BulkLifecycleResult bulkLifecycle(@Default("#[message.payload]") Object ids,
+    										 LifecycleAction action,
+    										 @Default("false") boolean sendEmail,
+    										 @Default("8") int concurrency,
+    										 @Default("3") int maxRetries) {
+        long start = System.currentTimeMillis();
+        BulkLifecycleResult result = new BulkLifecycleResult(action);
+        BulkExecutor<Object> executor = new BulkExecutor<Object>(getBulkPool(), BulkExecutor.iterator(ids),
+                new LifecycleTask(this, action, sendEmail), concurrency, maxRetries, getClient().getRetryPolicy());
+        while (executor.hasNext()) {
+            result.add(executor.next());
+        }
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+
     /**
      * Generates a one-time token (OTT) that can be used to reset a user's password. 
      * The user will be required to validate their security question's answer when visiting the reset link. 
@@ -256,11 +658,9 @@ public abstract class OktaConnector
      * @throws IOException
      */
     @Processor
-    @RestCall(uri="https://{host}/api/{version}/users/{id}/lifecycle/forgot_password",
-    		  method=HttpMethod.POST, 
-    		  contentType="application/json", 
-    		  exceptions={@RestExceptionOn(expression="#[message.inboundProperties['http.status'] > 206]")})
-    public abstract String forgotPassword(@RestUriParam("id") String id, @RestQueryParam("sendEmail") @Default("true") boolean sendEmail) throws IOException;
+    public String forgotPassword(String id, @Default("true") boolean sendEmail) throws IOException {
+        return lifecycle(id, "forgot_password", "sendEmail", sendEmail);
+    }
     
     /**
      * Sets a new password for a user by validating the user's answer to their current recovery question. 
@@ -280,11 +680,9 @@ public abstract class OktaConnector
      * @throws IOException
      */
     @Processor
-    @RestCall(uri="https://{host}/api/{version}/users/{id}/credentials/forgot_password",
-    		  method=HttpMethod.POST, 
-    		  contentType="application/json", 
-    		  exceptions={@RestExceptionOn(expression="#[message.inboundProperties['http.status'] > 206]")})
-    public abstract String passwordRecovery(@RestUriParam("id") String id, @Default("#[message.payload]") String credentials) throws IOException;
+    public String passwordRecovery(String id, @Default("#[message.payload]") String credentials) throws IOException {
+        return call("POST", "/users/" + OktaClient.segment(id) + "/credentials/forgot_password", null, credentials);
+    }
     
     /**
      * Changes a user's password by validating the user's current password. 
@@ -304,11 +702,9 @@ public abstract class OktaConnector
      * @throws IOException
      */
     @Processor
-    @RestCall(uri="https://{host}/api/{version}/users/{id}/credentials/change_password",
-    		  method=HttpMethod.POST, 
-    		  contentType="application/json", 
-    		  exceptions={@RestExceptionOn(expression="#[message.inboundProperties['http.status'] > 206]")})
-    public abstract String changePassword(@RestUriParam("id") String id, @Default("#[message.payload]") String passwords) throws IOException;
+    public String changePassword(String id, @Default("#[message.payload]") String passwords) throws IOException {
+        return call("POST", "/users/" + OktaClient.segment(id) + "/credentials/change_password", null, passwords);
+    }
     
     /**
      * Changes a user's recovery question & answer credential by validating the user's current password. 
@@ -331,11 +727,9 @@ public abstract class OktaConnector
      * @throws IOException
      */
     @Processor
-    @RestCall(uri="https://{host}/api/{version}/users/{id}/credentials/change_recovery_question",
-    		  method=HttpMethod.POST, 
-    		  contentType="application/json", 
-    		  exceptions={@RestExceptionOn(expression="#[message.inboundProperties['http.status'] > 206]")})
-    public abstract String changeRecoveryQuestion(@RestUriParam("id") String id, @Default("#[message.payload]") String credentials) throws IOException;
+    public String changeRecoveryQuestion(String id, @Default("#[message.payload]") String credentials) throws IOException {
+        return call("POST", "/users/" + OktaClient.segment(id) + "/credentials/change_recovery_question", null, credentials);
+    }
 
     //========================================================================
     
@@ -380,11 +774,9 @@ public abstract class OktaConnector
 	 * @throws IOException
 	 */
     @Processor
-    @RestCall(uri="https://{host}/api/{version}/sessions",
-    		  method=HttpMethod.POST, 
-    		  contentType="application/json", 
-    		  exceptions={@RestExceptionOn(expression="#[message.inboundProperties['http.status'] > 206]")} )
-    public abstract String authenticate(@Default("#[message.payload]") String credentials) throws IOException;
+    public String authenticate(@Default("#[message.payload]") String credentials) throws IOException {
+        return call("POST", "/sessions", null, credentials);
+    }
  
     
     /*
@@ -404,6 +796,132 @@ POST /authn/factors/:fid/verify
      */
     
     //========================================================================
+
+    /**
+     * Tails the System Log. Each poll follows the rel="next" cursor returned by the previous one and emits the
+     * events it returns as one message (a list of events). The cursor, with the time and uuids of the last events,
+     * is saved to an object store once the message has been processed, so events are neither skipped nor emitted
+     * twice across restarts; when Okta returns no cursor, the next poll reads again from the last event and skips
+     * the ones already emitted. A full page is followed by an immediate poll; the source waits for the polling
+     * interval once it has caught up. A failed poll is logged and retried after a backoff.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:stream-system-log}
+     *
+     * @see http://developer.okta.com/docs/api/resources/system_log.html
+     *
+     * @param callback The callback used to emit the events
+     * @param since Timestamp of the first event to read when no cursor has been saved, e.g. 2015-01-01T00:00:00.000Z
+     * @param filter Filter expression for events
+     * @param batchSize Maximum number of events per message
+     * @param pollingInterval Time to wait once all events have been read, in milliseconds
+     * @param cursorKey Key of the cursor in the object store
+     * @param objectStore Object store for the cursor; a persistent store of the application when not set
+     * @throws Exception if the object store cannot be looked up
+     */
+    @Source
+    public void streamSystemLog(SourceCallback callback,
+    							@Optional String since,
+    							@Optional String filter,
+    							@Default("1000") int batchSize,
+    							@Default("10000") long pollingInterval,
+    							@Default("okta-system-log") String cursorKey,
+    							@Optional ObjectStore<Serializable> objectStore) throws Exception {
+        WatermarkStore cursors = new WatermarkStore(objectStore != null ? objectStore : getDefaultObjectStore(), cursorKey);
+        int failures = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            long delay = 0;
+            try {
+                SourcePosition position = SourcePosition.decode(cursors.get(null), since);
+                String next = position.getNextUrl();
+                if (next == null) {
+                    // without a cursor, read again from the last event, which since includes
+                    Map<String, Object> params = new LinkedHashMap<String, Object>();
+                    params.put("since", position.getTimestamp());
+                    params.put("filter", filter);
+                    params.put("limit", batchSize);
+                    params.put("sortOrder", "ASCENDING");
+                    next = getClient().url("/logs", params);
+                }
+
+                OktaResponse response = getClient().execute("GET", next, null);
+                List<String> events = JsonArrayReader.readElements(response.getBody());
+                List<String> unseen = new ArrayList<String>(events.size());
+                SourcePosition latest = position.copy();
+                for (String event : events) {
+                    String uuid = JsonValues.readField(event, "uuid");
+                    String published = JsonValues.readField(event, "published");
+                    if (!position.isEmitted(published, uuid)) {
+                        unseen.add(event);
+                        latest.record(published, uuid);
+                    }
+                }
+                if (!unseen.isEmpty()) {
+                    callback.process(unseen);
+                }
+                latest.setNextUrl(response.getLink("next"));
+                cursors.set(latest.encode());
+                failures = 0;
+                if (events.size() < batchSize) {
+                    delay = pollingInterval;
+                }
+            } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                delay = failureDelay(++failures, e, pollingInterval);
+                logger.warn("Reading the System Log failed, retrying in " + delay + " ms", e);
+            }
+
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param failures number of consecutive failed polls
+     * @param failure failure of the last poll
+     * @param pollingInterval polling interval of the source
+     * @return time to wait before polling again: the retry backoff for transient failures, which honors
+     *         Retry-After, and the polling interval for the others, such as a failing flow
+     */
+    private long failureDelay(int failures, Exception failure, long pollingInterval) {
+        if (RetryPolicy.isTransient(failure)) {
+            return getClient().getRetryPolicy().backoff(failures - 1, failure);
+        }
+        return pollingInterval;
+    }
+
+    /**
+     * Verifies an Okta-issued ID or access token locally, without calling Okta: the signature is checked against
+     * the signing keys of the authorization server, which are cached, refreshed in the background and reloaded
+     * when a token is signed with a new key; then the issuer, audience and expiry are validated.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:verify-token}
+     *
+     * @param token The token, in compact JWT serialization
+     * @param issuer Expected issuer, e.g. https://example.okta.com/oauth2/default; the org authorization server when empty
+     * @param audience Expected audience (client id for ID tokens); not checked when empty
+     * @param clockSkew Tolerance applied to the time claims, in seconds
+     *
+     * @return claims of the token
+     * @throws InvalidTokenException if the token does not pass verification
+     * @throws IOException if the signing keys cannot be fetched
+     */
+    @Processor
+    public Map<String, Object> verifyToken(@Default("#[message.payload]") String token,
+    									   @Optional String issuer,
+    									   @Optional String audience,
+    									   @Default("60") int clockSkew) throws InvalidTokenException, IOException {
+        String expectedIssuer = issuer != null ? issuer : config.getProtocol() + "://" + getClient().getHost();
+        return new TokenVerifier(getKeySet(expectedIssuer)).verify(token, expectedIssuer, audience, clockSkew);
+    }
+
+    //========================================================================
     
     
     /**
@@ -426,14 +944,16 @@ POST /authn/factors/:fid/verify
      * @throws IOException
      */
     @Processor
-    @RestCall(uri="https://{host}/api/{version}/sessions",
-    		  method=HttpMethod.POST, 
-    		  contentType="application/json", 
-    		  exceptions={@RestExceptionOn(expression="#[message.inboundProperties['http.status'] > 206]")} )
-    public abstract String createSession(@Default("#[message.payload]") String sessionToken, @Optional @RestQueryParam("additionalFields")  String additionalFields) throws IOException;
+    public String createSession(@Default("#[message.payload]") String sessionToken, @Optional String additionalFields) throws IOException {
+        Map<String, Object> params = new LinkedHashMap<String, Object>();
+        params.put("additionalFields", additionalFields);
+        return call("POST", "/sessions", params, sessionToken);
+    }
     
     /**
      * Validate/extend an existing session. This method can be used instead of GET /sessions/{id} because it both validates the session and extends its lifetime. 
+     * When the session cache is enabled, a session validated recently is answered from memory until the configured
+     * fraction of its lifetime has passed.
      *
      * {@sample.xml ../../../doc/okta-connector.xml.sample okta:extend-session}
      * @see http://developer.okta.com/docs/api/resources/sessions.html#extend-session
@@ -449,11 +969,19 @@ POST /authn/factors/:fid/verify
      * @throws IOException
      */
     @Processor
-    @RestCall(uri="https://{host}/api/{version}/sessions/{sessionId}",
-    		  method=HttpMethod.PUT, 
-    		  contentType="application/json", 
-    		  exceptions={@RestExceptionOn(expression="#[message.inboundProperties['http.status'] > 206]")})
-    public abstract String extendSession(@Default("#[message.payload]") @RestUriParam("sessionId") String sessionId) throws IOException;
+    public String extendSession(@Default("#[message.payload]") String sessionId) throws IOException {
+        SessionCache cache = getSessionCache();
+        String key = cacheKey(sessionId);
+        String session = cache != null ? cache.get(key) : null;
+        if (session == null) {
+            long version = cache != null ? cache.version(key) : 0;
+            session = call("PUT", "/sessions/" + OktaClient.segment(sessionId), null, null);
+            if (cache != null) {
+                cache.put(key, session, JsonValues.readField(session, "expiresAt"), version);
+            }
+        }
+        return session;
+    }
     
     /**
      * Closes a user's session (logout).
@@ -472,14 +1000,631 @@ POST /authn/factors/:fid/verify
      * @throws IOException
      */
     @Processor
-    @RestCall(uri="https://{host}/api/{version}/sessions/{sessionId}",
-    		  method=HttpMethod.PUT, 
-    		  contentType="application/json", 
-    		  exceptions={@RestExceptionOn(expression="#[message.inboundProperties['http.status'] > 206]")})
-    public abstract String closeSession(@Default("#[message.payload]") @RestUriParam("sessionId") String sessionId) throws IOException;
+    public String closeSession(@Default("#[message.payload]") String sessionId) throws IOException {
+        SessionCache cache = getSessionCache();
+        String key = cacheKey(sessionId);
+        if (cache != null) {
+            cache.evict(key);
+        }
+        try {
+            return call("PUT", "/sessions/" + OktaClient.segment(sessionId), null, null);
+        } finally {
+            if (cache != null) {
+                // drops a validation that started while the session was being closed
+                cache.evict(key);
+            }
+        }
+    }
    
+    /**
+     * Typed variant of get-user. The user is parsed while the response is read, and only the selected fields
+     * are materialized.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:get-user-typed}
+     *
+     * @param id User ID, login, or login shortname (as long as it is unambiguous)
+     * @param fields Comma-separated fields to read, e.g. "id,status,profile.login"; all fields when empty
+     *
+     * @return User
+     * @throws IOException
+     */
+    @Processor
+    public User getUserTyped(String id, @Optional String fields) throws IOException {
+        return read("/users/" + OktaClient.segment(id), null, User.class, fields);
+    }
+
+    /**
+     * Typed variant of list-users.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:list-users-typed}
+     *
+     * @param query Searches firstName, lastName, and email attributes of users for matching value
+     * @param limit Specified the number of results
+     * @param filter Filter expression for users
+     * @param after Specifies the pagination cursor for the next page of users
+     * @param fields Comma-separated fields to read, e.g. "id,status,profile.login"; all fields when empty
+     *
+     * @return List of Users
+     * @throws IOException
+     */
+    @Processor
+    public List<User> listUsersTyped(@Optional String query,
+    								 @Default("10000") int limit,
+    								 @Optional String filter,
+    								 @Optional String after,
+    								 @Optional String fields) throws IOException {
+    	Map<String, Object> params = new LinkedHashMap<String, Object>();
+    	params.put("q", query);
+    	params.put("limit", limit);
+    	params.put("filter", filter);
+    	params.put("after", after);
+        return readList("/users", params, User.class, fields);
+    }
+
+    /**
+     * Typed variant of get-user-groups.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:get-user-groups-typed}
+     *
+     * @param id user id
+     * @param fields Comma-separated fields to read, e.g. "id,profile.name"; all fields when empty
+     *
+     * @return List of Groups
+     * @throws IOException
+     */
+    @Processor
+    public List<Group> getUserGroupsTyped(String id, @Optional String fields) throws IOException {
+        return readList("/users/" + OktaClient.segment(id) + "/groups", null, Group.class, fields);
+    }
+
+    /**
+     * Typed variant of get-user-app-links.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:get-user-app-links-typed}
+     *
+     * @param id user id
+     * @param fields Comma-separated fields to read, e.g. "label,linkUrl"; all fields when empty
+     *
+     * @return List of App Links
+     * @throws IOException
+     */
+    @Processor
+    public List<AppLink> getUserAppLinksTyped(String id, @Optional String fields) throws IOException {
+        return readList("/users/" + OktaClient.segment(id) + "/appLinks", null, AppLink.class, fields);
+    }
+
+    /**
+     * Typed variant of authenticate.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:authenticate-typed}
+     *
+     * @param credentials The authentication object in JSON format
+     * @param fields Comma-separated fields to read, e.g. "status,sessionToken"; all fields when empty
+     *
+     * @return authentication result
+     * @throws IOException
+     */
+    @Processor
+    public AuthnResult authenticateTyped(@Default("#[message.payload]") String credentials, @Optional String fields) throws IOException {
+        OktaClient client = getClient();
+        return ModelReader.readObject(client.execute("POST", client.url("/sessions", null), credentials).getBody(),
+                AuthnResult.class, FieldSelection.parse(fields));
+    }
+
+    /**
+     * Typed variant of create-session.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:create-session-typed}
+     *
+     * @param sessionToken The valid Session token (obtained by authenticating) in JSON format
+     * @param additionalFields Optional session properties, comma-separated
+     *
+     * @return Session
+     * @throws IOException
+     */
+    @Processor
+    public Session createSessionTyped(@Default("#[message.payload]") String sessionToken, @Optional String additionalFields) throws IOException {
+        Map<String, Object> params = new LinkedHashMap<String, Object>();
+        params.put("additionalFields", additionalFields);
+        OktaClient client = getClient();
+        return ModelReader.readObject(client.execute("POST", client.url("/sessions", params), sessionToken).getBody(),
+                Session.class, FieldSelection.ALL);
+    }
+
+    /**
+     * Typed variant of extend-session.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:extend-session-typed}
+     *
+     * @param sessionId The session id
+     *
+     * @return Session
+     * @throws IOException
+     */
+    @Processor
+    public Session extendSessionTyped(@Default("#[message.payload]") String sessionId) throws IOException {
+        OktaClient client = getClient();
+        return ModelReader.readObject(client.execute("PUT", client.url("/sessions/" + OktaClient.segment(sessionId), null), null).getBody(),
+                Session.class, FieldSelection.ALL);
+    }
+
+    /**
+     * Non-blocking variant of get-user: the Okta call runs on the connector's NIO client and the
+     * operation returns right away with a future of the user profile.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:get-user-async}
+     *
+     * @param id User ID, login, or login shortname (as long as it is unambiguous)
+     *
+     * @return Future of the user profile
+     */
+    @Processor
+    public Future<String> getUserAsync(final String id) {
+        final UserCache cache = getUserCache();
+        final String org = OrgContext.current();
+        final String key = cacheKey(org, id);
+        String cached = cache != null ? cache.get(key, "") : null;
+        if (cached != null) {
+            BasicFuture<String> result = new BasicFuture<String>(null);
+            result.completed(cached);
+            return result;
+        }
+        final UserCache.Version version = cache != null ? cache.version(key) : null;
+        OktaClient client = getClient();
+        return getAsyncClient().execute(client, "GET", client.url("/users/" + OktaClient.segment(id), null), null, cache == null ? null : new FutureCallback<String>() {
+            @Override
+            public void completed(String user) {
+                // runs on an I/O thread, outside of the org of the caller
+                try {
+                    String userId = JsonValues.readField(user, "id");
+                    cache.put(key, "", user, userId != null ? cacheKey(org, userId) : null, version);
+                } catch (IOException e) {
+                    // not a user, do not cache it
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+            }
+
+            @Override
+            public void cancelled() {
+            }
+        });
+    }
+
+    /**
+     * Non-blocking variant of get-user-groups.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:get-user-groups-async}
+     *
+     * @param id user id
+     *
+     * @return Future of the array of Groups
+     */
+    @Processor
+    public Future<String> getUserGroupsAsync(String id) {
+        OktaClient client = getClient();
+        return getAsyncClient().execute(client, "GET", client.url("/users/" + OktaClient.segment(id) + "/groups", null), null);
+    }
+
+    /**
+     * Non-blocking variant of authenticate.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:authenticate-async}
+     *
+     * @param credentials The authentication object in JSON format
+     *
+     * @return Future of the authentication object
+     */
+    @Processor
+    public Future<String> authenticateAsync(@Default("#[message.payload]") String credentials) {
+        OktaClient client = getClient();
+        return getAsyncClient().execute(client, "POST", client.url("/sessions", null), credentials);
+    }
+
+    /**
+     * Non-blocking variant of create-session.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:create-session-async}
+     *
+     * @param sessionToken The valid Session token (obtained by authenticating) in JSON format
+     * @param additionalFields Optional session properties, comma-separated
+     *
+     * @return Future of the session and user IDs
+     */
+    @Processor
+    public Future<String> createSessionAsync(@Default("#[message.payload]") String sessionToken, @Optional String additionalFields) {
+        Map<String, Object> params = new LinkedHashMap<String, Object>();
+        params.put("additionalFields", additionalFields);
+        OktaClient client = getClient();
+        return getAsyncClient().execute(client, "POST", client.url("/sessions", params), sessionToken);
+    }
+
+    /**
+     * Non-blocking variant of extend-session.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:extend-session-async}
+     *
+     * @param sessionId The session id
+     *
+     * @return Future of the session and user IDs
+     */
+    @Processor
+    public Future<String> extendSessionAsync(@Default("#[message.payload]") String sessionId) {
+        OktaClient client = getClient();
+        return getAsyncClient().execute(client, "PUT", client.url("/sessions/" + OktaClient.segment(sessionId), null), null);
+    }
+
+    /**
+     * Returns the hit, miss and eviction counters of the profiles known to update-user-delta, to help sizing them.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:get-profile-state-statistics}
+     *
+     * @return size, maxEntries, hits, misses and evictions of the known profiles
+     */
+    @Processor
+    public Map<String, Object> getProfileStateStatistics() {
+        return getProfileStateCache().getStatistics();
+    }
+
+    /**
+     * Returns the hit, miss and eviction counters of the user cache, to help sizing it.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:get-user-cache-statistics}
+     *
+     * @return size, users, maxEntries, hits, misses and evictions of the cache; empty when the cache is disabled
+     */
+    @Processor
+    public Map<String, Object> getUserCacheStatistics() {
+        UserCache cache = getUserCache();
+        return cache != null ? cache.getStatistics() : new LinkedHashMap<String, Object>();
+    }
+
+    /**
+     * Returns the hit, miss and eviction counters of the session cache.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:get-session-cache-statistics}
+     *
+     * @return size, maxEntries, hits, misses and evictions of the cache; empty when the cache is disabled
+     */
+    @Processor
+    public Map<String, Object> getSessionCacheStatistics() {
+        SessionCache cache = getSessionCache();
+        return cache != null ? cache.getStatistics() : new LinkedHashMap<String, Object>();
+    }
+
+    /**
+     * Returns the rate limit budget Okta reported for each endpoint family (users, sessions, authn...),
+     * together with the number of calls that had to be paced and the time they waited.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:get-rate-limit-status}
+     *
+     * @return limit, remaining, reset, requests, throttled and waitedMillis per endpoint family
+     */
+    @Processor
+    public Map<String, Object> getRateLimitStatus() {
+        return getClient().getRateLimitStatus();
+    }
+
+    /**
+     * Returns the statistics of the connection pools shared by all orgs: the pool of the blocking operations
+     * and, once an async operation has run, the separate pool of the async operations.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:get-connection-pool-statistics}
+     *
+     * @return leased, pending, available and max connections of the blocking pool, and the same statistics of
+     *         the async pool under "async"
+     */
+    @Processor
+    public Map<String, Object> getConnectionPoolStatistics() {
+        Map<String, Object> statistics = getClient().getPoolStatistics();
+        AsyncOktaClient async;
+        synchronized (this) {
+            async = asyncClient;
+        }
+        if (async != null) {
+            statistics.put("async", async.getPoolStatistics());
+        }
+        return statistics;
+    }
+
+    /**
+     * Returns the circuit breaker state and bulkhead usage of each endpoint family
+     * (users, lifecycle, credentials, authn, sessions and other).
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:get-circuit-breaker-status}
+     *
+     * @return state, calls, failureRate, slowCallRate, rejected, opened and bulkhead per endpoint family
+     */
+    @Processor
+    public Map<String, Object> getCircuitBreakerStatus() {
+        return getClient().getGuard().getStatus();
+    }
+
+    /**
+     * Returns the metrics recorded for each operation sent to Okta. An operation is the method and
+     * path template of a call, e.g. "POST /users/{id}/lifecycle/activate". The same metrics are
+     * published over JMX under the com.mulesoft.modules.okta domain.
+     *
+     * {@sample.xml ../../../doc/okta-connector.xml.sample okta:get-operation-metrics}
+     *
+     * @param operation Operation to return, all of them when not set
+     * @return requests, ioErrors, httpErrors, inFlight, responseBytes, statusCounts and, at the FULL
+     *         metrics level, latencyMillis per operation
+     */
+    @Processor
+    public Map<String, Object> getOperationMetrics(@Optional String operation) {
+        MetricsRegistry metrics = getClient().getMetrics();
+        return metrics != null ? metrics.getStatus(operation) : new LinkedHashMap<String, Object>();
+    }
+
+    /**
+     * Releases the pooled connections.
+     *
+     * @throws IOException if the connections cannot be closed
+     */
+    @Stop
+    public synchronized void stop() throws IOException {
+        if (bulkPool != null) {
+            bulkPool.shutdownNow();
+            bulkPool = null;
+        }
+        if (groupReplica != null) {
+            groupReplica.close();
+            groupReplica = null;
+        }
+        for (KeySetCache keySet : keySets.values()) {
+            keySet.close();
+        }
+        keySets.clear();
+        if (asyncClient != null) {
+            asyncClient.close();
+            asyncClient = null;
+        }
+        for (OktaClient orgClient : orgClients.values()) {
+            orgClient.close();
+        }
+        orgClients.clear();
+        if (client != null) {
+            client.close();
+            client = null;
+        }
+    }
+
     //========================================================================
+
+    private String call(String method, String path, Map<String, ?> query, String body) throws IOException {
+        OktaClient client = getClient();
+        return client.execute(method, client.url(path, query), body).asString();
+    }
+
+    private String get(String path, Map<String, ?> query) throws IOException {
+        OktaClient client = getClient();
+        return client.get(client.url(path, query));
+    }
+
+    private <T extends OktaObject> T read(String path, Map<String, ?> query, Class<T> type, String fields) throws IOException {
+        OktaClient client = getClient();
+        return ModelReader.readObject(client.execute("GET", client.url(path, query), null).getBody(), type, FieldSelection.parse(fields));
+    }
+
+    private <T extends OktaObject> List<T> readList(String path, Map<String, ?> query, Class<T> type, String fields) throws IOException {
+        OktaClient client = getClient();
+        return ModelReader.readList(client.execute("GET", client.url(path, query), null).getBody(), type, FieldSelection.parse(fields));
+    }
+
+    private String cachedGet(String id, String resource, String path) throws IOException {
+        UserCache cache = getUserCache();
+        if (cache == null) {
+            return get(path, null);
+        }
+        String key = cacheKey(id);
+        String value = cache.get(key, resource);
+        if (value == null) {
+            UserCache.Version version = cache.version(key);
+            value = get(path, null);
+            cache.put(key, resource, value, resource.isEmpty() ? userKey(value) : null, version);
+        }
+        return value;
+    }
+
+    /**
+     * @param user user returned by Okta
+     * @return cache key of the id of the user, or null if it has none
+     * @throws IOException if the user is not valid JSON
+     */
+    private String userKey(String user) throws IOException {
+        String id = JsonValues.readField(user, "id");
+        return id != null ? cacheKey(id) : null;
+    }
+
+    private String lifecycle(String id, String operation, String flag, Object flagValue) throws IOException {
+        Map<String, Object> query = new LinkedHashMap<String, Object>();
+        if (flag != null) {
+            query.put(flag, flagValue);
+        }
+        try {
+            return call("POST", "/users/" + OktaClient.segment(id) + "/lifecycle/" + operation, query, null);
+        } finally {
+            invalidateUser(id);
+        }
+    }
+
+    private void invalidateUser(String id) {
+        UserCache cache = getUserCache();
+        if (cache != null) {
+            cache.invalidate(cacheKey(id));
+        }
+    }
+
+    /**
+     * Records the profile of an updated user for update-user-delta, once it is in use.
+     *
+     * @param id user id
+     * @param user user returned by Okta
+     */
+    @SuppressWarnings("unchecked")
+    private void rememberProfile(String id, String user) {
+        ProfileStateCache states;
+        synchronized (this) {
+            states = profileStates;
+        }
+        if (states == null) {
+            return;
+        }
+        try {
+            Object profile = JsonValues.readObject(user).get("profile");
+            if (profile instanceof Map) {
+                states.put(cacheKey(id), (Map<String, Object>) profile);
+            } else {
+                states.invalidate(cacheKey(id));
+            }
+        } catch (IOException e) {
+            states.invalidate(cacheKey(id));
+        }
+    }
+
+    /**
+     * @param id user or session id
+     * @return key of the user or session in the caches, qualified by the org unless it is the default one
+     */
+    private String cacheKey(String id) {
+        return cacheKey(OrgContext.current(), id);
+    }
+
+    private static String cacheKey(String org, String id) {
+        return org != null ? org + "/" + id : id;
+    }
+
+    /**
+     * @return the persistent object store used by message sources when none is configured
+     */
+    @SuppressWarnings("unchecked")
+    protected ObjectStore<Serializable> getDefaultObjectStore() {
+        ObjectStoreManager manager = muleContext.getRegistry().lookupObject(MuleProperties.OBJECT_STORE_MANAGER);
+        return (ObjectStore<Serializable>) manager.getObjectStore("okta-connector", true);
+    }
+
+    public synchronized UserCache getUserCache() {
+        if (userCache == null && config.isUserCacheEnabled()) {
+            userCache = new UserCache(config.getUserCacheMaxEntries(), config.getUserCacheTtl() * 1000L);
+        }
+        return userCache;
+    }
+
+    public synchronized AsyncOktaClient getAsyncClient() {
+        if (asyncClient == null) {
+            asyncClient = new AsyncOktaClient(config);
+        }
+        return asyncClient;
+    }
+
+    /**
+     * @param issuer issuer of the tokens
+     * @return the cached signing keys of the authorization server of the issuer
+     */
+    public KeySetCache getKeySet(String issuer) {
+        KeySetCache keySet = keySets.get(issuer);
+        if (keySet == null) {
+            final String url = config.getJwksUrl() != null ? config.getJwksUrl()
+                    : issuer.contains("/oauth2/") ? issuer + "/v1/keys" : issuer + "/oauth2/v1/keys";
+            KeySetCache created = new KeySetCache(new KeySetSource() {
+                @Override
+                public String fetch() throws IOException {
+                    return getDefaultClient().getPublic(url);
+                }
+            }, config.getJwksRefreshInterval());
+            keySet = keySets.putIfAbsent(issuer, created);
+            if (keySet == null) {
+                keySet = created;
+            } else {
+                created.close();
+            }
+        }
+        return keySet;
+    }
+
+    public synchronized GroupReplica getGroupReplica() {
+        if (groupReplica == null && config.isGroupReplicaEnabled()) {
+            groupReplica = new GroupReplica(getDefaultClient(), config.getGroupReplicaSyncInterval(), config.getGroupReplicaRebuildInterval());
+        }
+        return groupReplica;
+    }
+
+    private MembershipIndex getGroupReplicaIndex() {
+        if (OrgContext.current() != null) {
+            // the replica only mirrors the default org
+            return null;
+        }
+        GroupReplica replica = getGroupReplica();
+        return replica != null ? replica.getIndex() : null;
+    }
+
+    public synchronized ProfileStateCache getProfileStateCache() {
+        if (profileStates == null) {
+            profileStates = new ProfileStateCache(config.getProfileStateMaxEntries(), config.getProfileStateTtl() * 1000L);
+        }
+        return profileStates;
+    }
+
+    /**
+     * @return threads running the items of the bulk operations, shared by all of them
+     */
+    public synchronized ExecutorService getBulkPool() {
+        if (bulkPool == null) {
+            bulkPool = BulkExecutor.createPool("okta-bulk");
+        }
+        return bulkPool;
+    }
+
+    public synchronized SessionCache getSessionCache() {
+        if (sessionCache == null && config.isSessionCacheEnabled()) {
+            sessionCache = new SessionCache(config.getSessionCacheMaxEntries(), config.getSessionRefreshFraction());
+        }
+        return sessionCache;
+    }
+
+    /**
+     * @return the client of the org the current operation runs in, see with-org
+     */
+    public OktaClient getClient() {
+        String org = OrgContext.current();
+        if (org == null) {
+            return getDefaultClient();
+        }
+        OktaClient orgClient = orgClients.get(org);
+        if (orgClient == null) {
+            String apiToken = config.getOrgs() != null ? config.getOrgs().get(org) : null;
+            if (apiToken == null) {
+                throw new IllegalArgumentException("No API token configured for org " + org);
+            }
+            OktaClient created = getDefaultClient().forOrg(org, apiToken);
+            orgClient = orgClients.putIfAbsent(org, created);
+            if (orgClient == null) {
+                orgClient = created;
+            } else {
+                try {
+                    created.close();
+                } catch (IOException e) {
+                    // only unregisters the metrics of the spare client
+                }
+            }
+        }
+        return orgClient;
+    }
+
+    private synchronized OktaClient getDefaultClient() {
+        if (client == null) {
+            client = new OktaClient(config);
+        }
+        return client;
+    }
  
+    public void setMuleContext(MuleContext muleContext) {
+        this.muleContext = muleContext;
+    }
+
     public OktaConnectorConfig getConfig() {
         return config;
     }
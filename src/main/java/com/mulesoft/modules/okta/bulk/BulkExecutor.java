@@ -0,0 +1,266 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.bulk;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.mulesoft.modules.okta.client.OrgContext;
+import com.mulesoft.modules.okta.resilience.RetryPolicy;
+
+/**
+ * Runs a task over a stream of items with bounded parallelism. Results are
+ * returned lazily in input order and a failing item does not stop the others.
+ * Up to twice the concurrency is read ahead, so a slow item does not leave the
+ * other workers idle. Items run on a pool owned by the connector, so a run whose
+ * results are abandoned leaves no threads behind once its read-ahead completes.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class BulkExecutor<I> implements Iterator<BulkItemResult> {
+
+    private final Iterator<I> items;
+    private final BulkTask<I> task;
+    private final int concurrency;
+    private final int maxRetries;
+    private final RetryPolicy retryPolicy;
+    private final Executor pool;
+    private final String org;
+    private final Queue<Future<BulkItemResult>> window = new ArrayDeque<Future<BulkItemResult>>();
+    private final Queue<Item> waiting = new ArrayDeque<Item>();
+    private int running;
+    private int index;
+
+    /**
+     * @param pool threads running the items, shared with other runs
+     * @param items input items, read as results are consumed
+     * @param task work to do for each item
+     * @param concurrency maximum number of items in flight
+     */
+    public BulkExecutor(Executor pool, Iterator<I> items, BulkTask<I> task, int concurrency) {
+        this(pool, items, task, concurrency, 0, null);
+    }
+
+    /**
+     * @param pool threads running the items, shared with other runs
+     * @param items input items, read as results are consumed
+     * @param task work to do for each item
+     * @param concurrency maximum number of items in flight
+     * @param maxRetries number of times an item is retried after a failure that Okta did not process
+     * @param retryPolicy backoff between the attempts of an item, honoring Retry-After and X-Rate-Limit-Reset
+     */
+    public BulkExecutor(Executor pool, Iterator<I> items, BulkTask<I> task, int concurrency, int maxRetries, RetryPolicy retryPolicy) {
+        this.pool = pool;
+        this.items = items;
+        this.task = task;
+        this.concurrency = Math.max(concurrency, 1);
+        this.maxRetries = retryPolicy != null ? Math.max(maxRetries, 0) : 0;
+        this.retryPolicy = retryPolicy;
+        this.org = OrgContext.current();
+        fill();
+    }
+
+    /**
+     * @param name prefix of the thread names
+     * @return a pool for the runs of a connector, to shut down when the connector stops
+     */
+    public static ExecutorService createPool(final String name) {
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger threads = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name + "-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @param items collection, array, iterable or iterator of items; a single object is a batch of one
+     * @return iterator over the items
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Iterator<T> iterator(Object items) {
+        if (items == null) {
+            return Collections.<T>emptyList().iterator();
+        }
+        if (items instanceof Iterator) {
+            return (Iterator<T>) items;
+        }
+        if (items instanceof Iterable) {
+            return ((Iterable<T>) items).iterator();
+        }
+        if (items instanceof Object[]) {
+            return Arrays.asList((T[]) items).iterator();
+        }
+        return Collections.singletonList((T) items).iterator();
+    }
+
+    @Override
+    public synchronized boolean hasNext() {
+        return !window.isEmpty();
+    }
+
+    @Override
+    public synchronized BulkItemResult next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Future<BulkItemResult> head = window.poll();
+        BulkItemResult result;
+        try {
+            result = head.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+            throw new IllegalStateException("Interrupted while waiting for bulk results", e);
+        } catch (ExecutionException e) {
+            // items never throw, failures are recorded in their result
+            throw new IllegalStateException(e.getCause());
+        }
+        fill();
+        return result;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Stops submitting items and interrupts the ones in flight.
+     */
+    public synchronized void cancel() {
+        synchronized (waiting) {
+            waiting.clear();
+        }
+        for (Future<BulkItemResult> future : window) {
+            future.cancel(true);
+        }
+        window.clear();
+    }
+
+    private void fill() {
+        while (window.size() < concurrency * 2 && items.hasNext()) {
+            final I item = items.next();
+            final int position = index++;
+            Item future = new Item(position, new Callable<BulkItemResult>() {
+                @Override
+                public BulkItemResult call() {
+                    // results may be consumed after the with-org scope, so the org is the one of the caller
+                    String previous = OrgContext.enter(org);
+                    try {
+                        return run(position, item);
+                    } finally {
+                        OrgContext.restore(previous);
+                    }
+                }
+            });
+            window.add(future);
+            dispatch(future);
+        }
+    }
+
+    /**
+     * Runs the item now if fewer than concurrency items of this run are in flight, after one of them
+     * otherwise; the read-ahead waits here rather than holding a thread of the shared pool.
+     */
+    private void dispatch(Item item) {
+        synchronized (waiting) {
+            if (running >= concurrency) {
+                waiting.add(item);
+                return;
+            }
+            running++;
+        }
+        try {
+            pool.execute(chain(item));
+        } catch (RejectedExecutionException e) {
+            // the connector is stopping: fail the item and the ones waiting for it, next() would wait for them forever
+            String error = "Rejected: " + (e.getMessage() != null ? e.getMessage() : "the bulk pool is shut down");
+            item.reject(error);
+            synchronized (waiting) {
+                running--;
+                for (Item waited = waiting.poll(); waited != null; waited = waiting.poll()) {
+                    waited.reject(error);
+                }
+            }
+        }
+    }
+
+    private Runnable chain(final Item item) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                Runnable next = item;
+                while (next != null) {
+                    next.run();
+                    synchronized (waiting) {
+                        next = waiting.poll();
+                        if (next == null) {
+                            running--;
+                        }
+                    }
+                }
+            }
+        };
+    }
+
+    private BulkItemResult run(int position, I item) {
+        String key = null;
+        int attempt = 0;
+        while (true) {
+            attempt++;
+            long backoff;
+            try {
+                if (key == null) {
+                    key = task.key(item);
+                }
+                return new BulkItemResult(position, key, true, task.execute(item, key), null, attempt);
+            } catch (Exception e) {
+                // items may not be idempotent (activation emails), so only calls Okta did not process are resent
+                if (attempt > maxRetries || !RetryPolicy.isSafeToResend(e)) {
+                    return new BulkItemResult(position, key, false, null, e.getMessage(), attempt);
+                }
+                backoff = retryPolicy.backoff(attempt - 1, e);
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new BulkItemResult(position, key, false, null, "Interrupted", attempt);
+            }
+        }
+    }
+
+    private static class Item extends FutureTask<BulkItemResult> {
+        private final int position;
+
+        private Item(int position, Callable<BulkItemResult> callable) {
+            super(callable);
+            this.position = position;
+        }
+
+        private void reject(String error) {
+            set(new BulkItemResult(position, null, false, null, error, 0));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.bulk;
+
+import java.io.Serializable;
+
+/**
+ * Outcome of one item of a bulk operation.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class BulkItemResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int index;
+    private final String key;
+    private final boolean successful;
+    private final String response;
+    private final String error;
+    private final int attempts;
+
+    public BulkItemResult(int index, String key, boolean successful, String response, String error, int attempts) {
+        this.index = index;
+        this.key = key;
+        this.successful = successful;
+        this.response = response;
+        this.error = error;
+        this.attempts = attempts;
+    }
+
+    /**
+     * @return position of the item in the input
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public boolean isSuccessful() {
+        return successful;
+    }
+
+    /**
+     * @return response of Okta, null if the item failed
+     */
+    public String getResponse() {
+        return response;
+    }
+
+    /**
+     * @return error message, null if the item succeeded
+     */
+    public String getError() {
+        return error;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkItemResult[" + index + ", " + key + (successful ? ", OK]" : ", " + error + "]");
+    }
+}
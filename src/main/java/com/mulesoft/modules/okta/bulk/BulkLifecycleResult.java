@@ -0,0 +1,85 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.bulk;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aggregated outcome of a bulk lifecycle run.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class BulkLifecycleResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final LifecycleAction action;
+    private final List<BulkItemResult> items = new ArrayList<BulkItemResult>();
+    private int succeeded;
+    private int failed;
+    private int retries;
+    private long elapsedMillis;
+
+    public BulkLifecycleResult(LifecycleAction action) {
+        this.action = action;
+    }
+
+    public void add(BulkItemResult item) {
+        items.add(item);
+        if (item.isSuccessful()) {
+            succeeded++;
+        } else {
+            failed++;
+        }
+        retries += item.getAttempts() - 1;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public LifecycleAction getAction() {
+        return action;
+    }
+
+    /**
+     * @return outcome of each id, in input order
+     */
+    public List<BulkItemResult> getItems() {
+        return items;
+    }
+
+    public int getTotal() {
+        return items.size();
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return number of retries made after transient failures
+     */
+    public int getRetries() {
+        return retries;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return processed ids per second
+     */
+    public double getThroughput() {
+        return elapsedMillis > 0 ? items.size() * 1000.0 / elapsedMillis : 0;
+    }
+}
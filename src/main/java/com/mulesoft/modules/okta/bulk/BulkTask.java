@@ -0,0 +1,27 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.bulk;
+
+/**
+ * Work done for one item of a bulk operation.
+ *
+ * @author MuleSoft, Inc.
+ */
+public interface BulkTask<I> {
+
+    /**
+     * @param item input item
+     * @return key identifying the item in the results, e.g. the user id or login
+     */
+    String key(I item);
+
+    /**
+     * @param item input item
+     * @param key key returned by {@link #key(Object)} for the item
+     * @return response of the call made for the item
+     * @throws Exception if the item fails
+     */
+    String execute(I item, String key) throws Exception;
+}
@@ -0,0 +1,19 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.bulk;
+
+/**
+ * Operation applied to each profile of a bulk provisioning run.
+ *
+ * @author MuleSoft, Inc.
+ */
+public enum BulkUserOperation {
+    /** Create the user, the item is the body of createUser */
+    CREATE,
+    /** Update the user, the item is the body of updateUser and must carry the user id */
+    UPDATE,
+    /** Update only the changed attributes of the user, the item is the body of updateUserDelta and must carry the user id */
+    DELTA
+}
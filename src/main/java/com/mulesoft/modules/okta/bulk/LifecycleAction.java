@@ -0,0 +1,18 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.bulk;
+
+/**
+ * Lifecycle operation applied by a bulk lifecycle run.
+ *
+ * @author MuleSoft, Inc.
+ */
+public enum LifecycleAction {
+    ACTIVATE,
+    DEACTIVATE,
+    UNLOCK,
+    RESET_PASSWORD,
+    EXPIRE_PASSWORD
+}
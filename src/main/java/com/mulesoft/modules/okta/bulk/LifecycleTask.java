@@ -0,0 +1,53 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.bulk;
+
+import com.mulesoft.modules.okta.OktaConnector;
+
+/**
+ * Applies a lifecycle operation to one user id of a bulk lifecycle run.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class LifecycleTask implements BulkTask<Object> {
+
+    private final OktaConnector connector;
+    private final LifecycleAction action;
+    private final boolean sendEmail;
+
+    /**
+     * @param connector connector used for the calls
+     * @param action lifecycle operation
+     * @param sendEmail passed to activate and reset password
+     */
+    public LifecycleTask(OktaConnector connector, LifecycleAction action, boolean sendEmail) {
+        this.connector = connector;
+        this.action = action;
+        this.sendEmail = sendEmail;
+    }
+
+    @Override
+    public String key(Object item) {
+        return String.valueOf(item);
+    }
+
+    @Override
+    public String execute(Object item, String id) throws Exception {
+        switch (action) {
+            case ACTIVATE:
+                return connector.activateUser(id, sendEmail);
+            case DEACTIVATE:
+                return connector.deactivateUser(id);
+            case UNLOCK:
+                return connector.unlockUser(id);
+            case RESET_PASSWORD:
+                return connector.resetPassword(id, sendEmail);
+            case EXPIRE_PASSWORD:
+                return connector.expirePassword(id, false);
+            default:
+                throw new IllegalArgumentException("Unsupported lifecycle action " + action);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.bulk;
+
+import java.io.IOException;
+import java.util.Map;
+
+import com.mulesoft.modules.okta.OktaConnector;
+import com.mulesoft.modules.okta.model.JsonValues;
+
+/**
+ * Creates or updates one user of a bulk provisioning run. Items are JSON strings
+ * or maps in the format of createUser/updateUser; updates take the user id from
+ * the "id" attribute of the item.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class ProvisioningTask implements BulkTask<Object> {
+
+    private final OktaConnector connector;
+    private final BulkUserOperation operation;
+    private final boolean activate;
+
+    public ProvisioningTask(OktaConnector connector, BulkUserOperation operation, boolean activate) {
+        this.connector = connector;
+        this.operation = operation;
+        this.activate = activate;
+    }
+
+    @Override
+    public String key(Object item) {
+        try {
+            if (operation != BulkUserOperation.CREATE && item instanceof String) {
+                // the id is a top level attribute, read without parsing the rest of the user
+                return JsonValues.readField((String) item, "id");
+            }
+            Map<String, Object> user = asMap(item);
+            if (operation != BulkUserOperation.CREATE) {
+                return user.get("id") != null ? user.get("id").toString() : null;
+            }
+            Object profile = user.get("profile");
+            return profile instanceof Map && ((Map<?, ?>) profile).get("login") != null
+                    ? ((Map<?, ?>) profile).get("login").toString() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String execute(Object item, String id) throws Exception {
+        String body = item instanceof String ? (String) item : JsonValues.write(item);
+        if (operation != BulkUserOperation.CREATE) {
+            if (id == null) {
+                throw new IllegalArgumentException("Missing user id");
+            }
+            if (operation == BulkUserOperation.DELTA) {
+                return JsonValues.write(connector.updateUserDelta(body, id));
+            }
+            return connector.updateUser(body, id);
+        }
+        return connector.createUser(body, activate);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object item) throws IOException {
+        if (item instanceof Map) {
+            return (Map<String, Object>) item;
+        }
+        return JsonValues.readObject(String.valueOf(item));
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.cache;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.mulesoft.modules.okta.model.JsonValues;
+
+/**
+ * Size and TTL bounded LRU cache of the last known profile of each user, used to send only
+ * the attributes that changed. Only a 64-bit fingerprint of each attribute value is kept, so
+ * an entry costs a few hundred bytes whatever the size of the profile.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class ProfileStateCache {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long NULL_FINGERPRINT = fingerprint(null);
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, ProfileState> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxEntries maximum number of users
+     * @param ttlMillis time after which a profile is no longer trusted, in milliseconds
+     */
+    public ProfileStateCache(final int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<String, ProfileState>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ProfileState> eldest) {
+                if (size() > ProfileStateCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param id user id
+     * @param profile attributes to compare with the last known profile
+     * @return the attributes whose value differs from the last known profile, all of them when the
+     *         profile is unknown or expired
+     */
+    public Map<String, Object> changes(String id, Map<String, Object> profile) {
+        ProfileState state;
+        synchronized (entries) {
+            state = entries.get(id);
+            if (state != null && state.expiresAt <= System.currentTimeMillis()) {
+                entries.remove(id);
+                evictions.incrementAndGet();
+                state = null;
+            }
+        }
+        if (state != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        Map<String, Object> changes = new LinkedHashMap<String, Object>();
+        for (Map.Entry<String, Object> attribute : profile.entrySet()) {
+            if (state == null || !state.matches(attribute.getKey(), fingerprint(attribute.getValue()))) {
+                changes.put(attribute.getKey(), attribute.getValue());
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * @param id user id
+     * @return true if the profile of the user is known and not expired
+     */
+    public boolean contains(String id) {
+        synchronized (entries) {
+            ProfileState state = entries.get(id);
+            return state != null && state.expiresAt > System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Records the profile of a user as returned by Okta, replacing the previous one.
+     *
+     * @param id user id
+     * @param profile the complete profile
+     */
+    public void put(String id, Map<String, Object> profile) {
+        List<String> names = new ArrayList<String>(profile.size());
+        long[] fingerprints = new long[profile.size()];
+        for (Map.Entry<String, Object> attribute : profile.entrySet()) {
+            fingerprints[names.size()] = fingerprint(attribute.getValue());
+            names.add(attribute.getKey().intern());
+        }
+        ProfileState state = new ProfileState(names.toArray(new String[names.size()]), fingerprints,
+                System.currentTimeMillis() + ttlMillis);
+        synchronized (entries) {
+            entries.put(id, state);
+        }
+    }
+
+    public void invalidate(String id) {
+        synchronized (entries) {
+            entries.remove(id);
+        }
+    }
+
+    /**
+     * @return size, hits, misses and evictions of the cache
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+        synchronized (entries) {
+            statistics.put("size", entries.size());
+        }
+        statistics.put("maxEntries", maxEntries);
+        statistics.put("hits", hits.get());
+        statistics.put("misses", misses.get());
+        statistics.put("evictions", evictions.get());
+        return statistics;
+    }
+
+    /**
+     * @param value attribute value
+     * @return FNV-1a hash of the JSON form of the value
+     */
+    static long fingerprint(Object value) {
+        byte[] json;
+        try {
+            json = JsonValues.write(value).getBytes(UTF8);
+        } catch (IOException e) {
+            // cannot happen when writing to a string; an unknown fingerprint only forces the attribute to be sent
+            return 0;
+        }
+        long hash = FNV_OFFSET;
+        for (byte b : json) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static class ProfileState {
+        private final String[] names;
+        private final long[] fingerprints;
+        private final long expiresAt;
+
+        private ProfileState(String[] names, long[] fingerprints, long expiresAt) {
+            this.names = names;
+            this.fingerprints = fingerprints;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean matches(String name, long fingerprint) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) {
+                    return fingerprints[i] == fingerprint;
+                }
+            }
+            // an absent attribute is the same as a null one
+            return fingerprint == NULL_FINGERPRINT;
+        }
+    }
+}
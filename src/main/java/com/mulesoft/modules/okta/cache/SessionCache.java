@@ -0,0 +1,176 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.cache;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of validated sessions keyed by session id. A session is served from the
+ * cache until the configured fraction of its remaining lifetime, measured from
+ * the last validation, has passed; it then has to be extended remotely again.
+ * <p>
+ * A validation that was in flight when the session was closed must not cache it again:
+ * take a {@link #version(String)} before calling Okta and pass it to
+ * {@link #put(String, String, String, long)}, which drops the response if the session
+ * was evicted in the meantime.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class SessionCache {
+
+    private static final String[] DATE_FORMATS = {"yyyy-MM-dd'T'HH:mm:ss.SSSX", "yyyy-MM-dd'T'HH:mm:ssX"};
+    private static final int STRIPES = 256;
+
+    private final int maxEntries;
+    private final double refreshFraction;
+    private final LinkedHashMap<String, ValidatedSession> sessions;
+    // evictions of the sessions hashing to each stripe; a collision only drops a put
+    private final long[] versions = new long[STRIPES];
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxEntries maximum number of cached sessions
+     * @param refreshFraction fraction of the lifetime after which a session is extended remotely again
+     */
+    public SessionCache(int maxEntries, double refreshFraction) {
+        this.maxEntries = maxEntries;
+        this.refreshFraction = refreshFraction;
+        this.sessions = new LinkedHashMap<String, ValidatedSession>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ValidatedSession> eldest) {
+                if (size() > SessionCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param sessionId session id
+     * @return the last response of extend session, or null if the session has to be validated remotely
+     */
+    public String get(String sessionId) {
+        return get(sessionId, System.currentTimeMillis());
+    }
+
+    String get(String sessionId, long now) {
+        synchronized (sessions) {
+            ValidatedSession session = sessions.get(sessionId);
+            if (session != null && now < session.refreshAt) {
+                hits.incrementAndGet();
+                return session.response;
+            }
+            if (session != null && now >= session.expiresAt) {
+                sessions.remove(sessionId);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * @param sessionId session id about to be validated remotely
+     * @return the version to pass to {@link #put(String, String, String, long)}
+     */
+    public long version(String sessionId) {
+        synchronized (sessions) {
+            return versions[stripe(sessionId)];
+        }
+    }
+
+    /**
+     * Records a successful remote validation, unless the session was evicted since the version was
+     * taken. Sessions without a parseable expiresAt are not cached.
+     *
+     * @param sessionId session id
+     * @param response response of extend session
+     * @param expiresAt expiresAt attribute of the session
+     * @param version version taken before the validation
+     */
+    public void put(String sessionId, String response, String expiresAt, long version) {
+        put(sessionId, response, expiresAt, version, System.currentTimeMillis());
+    }
+
+    void put(String sessionId, String response, String expiresAt, long version, long now) {
+        long expires = parse(expiresAt);
+        if (expires <= now) {
+            return;
+        }
+        long refreshAt = now + (long) ((expires - now) * refreshFraction);
+        synchronized (sessions) {
+            if (versions[stripe(sessionId)] == version) {
+                sessions.put(sessionId, new ValidatedSession(response, expires, refreshAt));
+            }
+        }
+    }
+
+    /**
+     * Drops a session and the validations of it still in flight.
+     *
+     * @param sessionId session id to drop, e.g. after the session is closed
+     */
+    public void evict(String sessionId) {
+        synchronized (sessions) {
+            versions[stripe(sessionId)]++;
+            sessions.remove(sessionId);
+        }
+    }
+
+    /**
+     * @return size, hits, misses and evictions of the cache
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+        synchronized (sessions) {
+            statistics.put("size", sessions.size());
+        }
+        statistics.put("maxEntries", maxEntries);
+        statistics.put("hits", hits.get());
+        statistics.put("misses", misses.get());
+        statistics.put("evictions", evictions.get());
+        return statistics;
+    }
+
+    private static int stripe(String sessionId) {
+        return (sessionId.hashCode() & 0x7fffffff) % STRIPES;
+    }
+
+    private static long parse(String timestamp) {
+        if (timestamp == null) {
+            return -1;
+        }
+        for (String format : DATE_FORMATS) {
+            try {
+                return new SimpleDateFormat(format).parse(timestamp).getTime();
+            } catch (ParseException e) {
+                // try the next format
+            }
+        }
+        return -1;
+    }
+
+    private static class ValidatedSession {
+        private final String response;
+        private final long expiresAt;
+        private final long refreshAt;
+
+        private ValidatedSession(String response, long expiresAt, long refreshAt) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+            this.refreshAt = refreshAt;
+        }
+    }
+}
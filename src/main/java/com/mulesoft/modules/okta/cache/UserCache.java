@@ -0,0 +1,252 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.cache;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size and TTL bounded LRU cache of user resources (profile, groups, app links), indexed by
+ * Okta user id. A user looked up by login is stored under its id, and the login is kept as an
+ * alias, so invalidating the user by id or by login removes every resource of the user.
+ * <p>
+ * A value read from Okta is only stored if the user was not invalidated while it was being
+ * read: take a {@link Version} before calling Okta and pass it to
+ * {@link #put(String, String, String, String, Version)}.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class UserCache {
+
+    private static final int STRIPES = 1024;
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, UserEntry> users = new LinkedHashMap<String, UserEntry>(16, 0.75f, true);
+    private final Map<String, String> aliases = new HashMap<String, String>();
+    private int size;
+
+    // invalidations of the users hashing to each stripe; a collision only drops a put
+    private final long[] versions = new long[STRIPES];
+    // every invalidation, for values read by a login not yet linked to an id
+    private long generation;
+    // invalidations that could not be linked to an id, and clears
+    private long epoch;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxEntries maximum number of cached resources
+     * @param ttlMillis time to live of a cached resource in milliseconds
+     */
+    public UserCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @param key user id or login
+     * @param resource resource of the user, e.g. "groups"
+     * @return the cached value or null if it is absent or expired
+     */
+    public String get(String key, String resource) {
+        synchronized (users) {
+            String id = resolve(key);
+            UserEntry entry = id != null ? users.get(id) : null;
+            CachedValue value = entry != null ? entry.values.get(resource) : null;
+            if (value != null && value.expiresAt > System.currentTimeMillis()) {
+                hits.incrementAndGet();
+                return value.value;
+            }
+            if (value != null) {
+                entry.values.remove(resource);
+                size--;
+                evictions.incrementAndGet();
+                if (entry.values.isEmpty()) {
+                    remove(id);
+                }
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * @param key user id or login about to be read from Okta
+     * @return the version to pass to {@link #put(String, String, String, String, Version)}
+     */
+    public Version version(String key) {
+        synchronized (users) {
+            String id = resolve(key);
+            return new Version(id, id != null ? versions[stripe(id)] : 0, generation, epoch);
+        }
+    }
+
+    /**
+     * Stores a value read from Okta, unless the user was invalidated since the version was taken.
+     *
+     * @param key user id or login the value was read with
+     * @param resource resource of the user, e.g. "groups"
+     * @param value the value
+     * @param id Okta id of the user if the value tells it, or null
+     * @param version version taken before reading the value
+     */
+    public void put(String key, String resource, String value, String id, Version version) {
+        synchronized (users) {
+            String user = id != null ? id : resolve(key);
+            if (user == null || !version.isCurrent(user)) {
+                // a login that is not linked to an id yet could not be invalidated by id
+                return;
+            }
+            UserEntry entry = users.get(user);
+            if (entry == null) {
+                entry = new UserEntry();
+                users.put(user, entry);
+            }
+            if (!key.equals(user) && entry.aliases.add(key)) {
+                String previous = aliases.put(key, user);
+                if (previous != null && !previous.equals(user)) {
+                    UserEntry other = users.get(previous);
+                    if (other != null) {
+                        other.aliases.remove(key);
+                    }
+                }
+            }
+            if (entry.values.put(resource, new CachedValue(value, System.currentTimeMillis() + ttlMillis)) == null) {
+                size++;
+            }
+            for (Iterator<Map.Entry<String, UserEntry>> eldest = users.entrySet().iterator(); size > maxEntries && eldest.hasNext();) {
+                Map.Entry<String, UserEntry> evicted = eldest.next();
+                eldest.remove();
+                size -= evicted.getValue().values.size();
+                evictions.addAndGet(evicted.getValue().values.size());
+                aliases.keySet().removeAll(evicted.getValue().aliases);
+            }
+        }
+    }
+
+    /**
+     * Removes every cached resource of the user and drops the values being read for it.
+     *
+     * @param key user id or login
+     */
+    public void invalidate(String key) {
+        synchronized (users) {
+            generation++;
+            String id = resolve(key);
+            if (id == null) {
+                epoch++;
+                return;
+            }
+            versions[stripe(id)]++;
+            remove(id);
+        }
+    }
+
+    public void clear() {
+        synchronized (users) {
+            users.clear();
+            aliases.clear();
+            size = 0;
+            generation++;
+            epoch++;
+        }
+    }
+
+    /**
+     * @return size, hits, misses and evictions of the cache
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+        synchronized (users) {
+            statistics.put("size", size);
+            statistics.put("users", users.size());
+        }
+        statistics.put("maxEntries", maxEntries);
+        statistics.put("hits", hits.get());
+        statistics.put("misses", misses.get());
+        statistics.put("evictions", evictions.get());
+        return statistics;
+    }
+
+    /**
+     * Okta user ids are 20 characters long and start with "00u"; anything else is a login
+     * or a login shortname, and is only known once a read of the user tells its id.
+     *
+     * @param key user key, qualified by the org or not
+     * @return true if the key is an Okta user id
+     */
+    static boolean isUserId(String key) {
+        int start = key.lastIndexOf('/') + 1;
+        return key.length() - start == 20 && key.startsWith("00u", start);
+    }
+
+    private String resolve(String key) {
+        String id = aliases.get(key);
+        return id != null ? id : isUserId(key) ? key : null;
+    }
+
+    private void remove(String id) {
+        UserEntry entry = users.remove(id);
+        if (entry != null) {
+            size -= entry.values.size();
+            aliases.keySet().removeAll(entry.aliases);
+        }
+    }
+
+    private static int stripe(String id) {
+        return (id.hashCode() & 0x7fffffff) % STRIPES;
+    }
+
+    /**
+     * Invalidation state of a user when a read from Okta started.
+     */
+    public final class Version {
+        private final String id;
+        private final long version;
+        private final long generation;
+        private final long epoch;
+
+        private Version(String id, long version, long generation, long epoch) {
+            this.id = id;
+            this.version = version;
+            this.generation = generation;
+            this.epoch = epoch;
+        }
+
+        // called with the lock held
+        private boolean isCurrent(String user) {
+            if (epoch != UserCache.this.epoch) {
+                return false;
+            }
+            if (user.equals(id)) {
+                return version == versions[stripe(user)];
+            }
+            return generation == UserCache.this.generation;
+        }
+    }
+
+    private static class UserEntry {
+        private final Map<String, CachedValue> values = new HashMap<String, CachedValue>(4);
+        private final Set<String> aliases = new HashSet<String>(2);
+    }
+
+    private static class CachedValue {
+        private final String value;
+        private final long expiresAt;
+
+        private CachedValue(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
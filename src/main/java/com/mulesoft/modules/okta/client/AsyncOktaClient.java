@@ -0,0 +1,265 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.client;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
+
+import com.mulesoft.modules.okta.config.OktaConnectorConfig;
+import com.mulesoft.modules.okta.metrics.MetricsRegistry;
+import com.mulesoft.modules.okta.metrics.OperationMetrics;
+import com.mulesoft.modules.okta.ratelimit.RateLimitScheduler;
+import com.mulesoft.modules.okta.resilience.EndpointGuard;
+
+/**
+ * Non-blocking counterpart of {@link OktaClient}. Calls run on an NIO reactor and
+ * complete a future, so a few threads can keep many requests in flight. Calls
+ * delayed by the rate limit are rescheduled rather than blocking the caller.
+ * Calls go through the circuit breakers of the blocking ones, but have bulkheads of
+ * their own, sized by the async concurrency: the caller never waits for room, a call
+ * over the limit fails right away, and the room is held until the call completes.
+ * The NIO reactor keeps a connection pool of its own, separate from the pool of
+ * the blocking client; both are shared by all the orgs of a connector.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class AsyncOktaClient {
+
+    private final OktaConnectorConfig config;
+    private final PoolingNHttpClientConnectionManager connectionManager;
+    private final CloseableHttpAsyncClient http;
+    private final ScheduledExecutorService timer;
+
+    /**
+     * @param config connector configuration
+     */
+    public AsyncOktaClient(OktaConnectorConfig config) {
+        this.config = config;
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(config.getConnectTimeout())
+                .setSocketTimeout(config.getReadTimeout())
+                .setConnectionRequestTimeout(config.getConnectTimeout())
+                .build();
+        try {
+            this.connectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(IOReactorConfig.DEFAULT));
+        } catch (IOReactorException e) {
+            throw new IllegalStateException("Cannot start the I/O reactor of the async client", e);
+        }
+        this.connectionManager.setMaxTotal(config.getMaxConnections());
+        this.connectionManager.setDefaultMaxPerRoute(config.getMaxConnections());
+        this.http = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setUserAgent("mule-module-okta")
+                .build();
+        this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "okta-async-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.http.start();
+    }
+
+    /**
+     * Sends a call without blocking.
+     *
+     * @param org blocking client of the org, whose API token, rate limit budget, bulkheads, circuit breakers and metrics are used
+     * @param method HTTP method
+     * @param url absolute URL, see {@link OktaClient#url(String, java.util.Map)}
+     * @param body JSON request body or null
+     * @return future completed with the body of the response, or failed with an
+     *         IOException if the call fails, or an OktaException if the status is above 206
+     */
+    public Future<String> execute(OktaClient org, String method, String url, String body) {
+        return execute(org, method, url, body, null);
+    }
+
+    /**
+     * Sends a call without blocking.
+     *
+     * @param org blocking client of the org, whose API token, rate limit budget, bulkheads, circuit breakers and metrics are used
+     * @param method HTTP method
+     * @param url absolute URL, see {@link OktaClient#url(String, java.util.Map)}
+     * @param body JSON request body or null
+     * @param callback notified on the I/O thread when the call completes, may be null
+     * @return future completed with the body of the response
+     */
+    public Future<String> execute(OktaClient org, String method, String url, String body, FutureCallback<String> callback) {
+        BasicFuture<String> result = new BasicFuture<String>(callback);
+        long deadline = System.currentTimeMillis() + config.getRateLimitMaxWait() * 1000L;
+        RateLimitScheduler rateLimiter = org.getRateLimiter();
+        MetricsRegistry metrics = org.getMetrics();
+        try {
+            // never waits: a call over the async limit of its family fails right away, and holds its room until it completes
+            String path = OktaClient.path(url);
+            EndpointGuard.Compartment compartment = org.getGuard().asyncCompartment(path);
+            compartment.enter();
+            Call call = new Call(org, method, url, body, deadline, result, compartment, metrics != null ? metrics.operation(method, path) : null);
+            try {
+                schedule(call, rateLimiter != null ? rateLimiter.reserve(OktaClient.family(url)) : 0);
+            } catch (IOException e) {
+                compartment.release();
+                throw e;
+            }
+        } catch (IOException e) {
+            result.failed(e);
+        }
+        return result;
+    }
+
+    /**
+     * @return leased, pending, available and max connections of the pool of the async calls
+     */
+    public Map<String, Object> getPoolStatistics() {
+        PoolStats stats = connectionManager.getTotalStats();
+        Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+        statistics.put("leased", stats.getLeased());
+        statistics.put("pending", stats.getPending());
+        statistics.put("available", stats.getAvailable());
+        statistics.put("max", stats.getMax());
+        return statistics;
+    }
+
+    public void close() throws IOException {
+        timer.shutdownNow();
+        http.close();
+    }
+
+    private void schedule(Call call, long delay) {
+        if (delay > 0) {
+            timer.schedule(call, delay, TimeUnit.MILLISECONDS);
+        } else {
+            call.run();
+        }
+    }
+
+    private class Call implements Runnable, FutureCallback<HttpResponse> {
+        private final OktaClient org;
+        private final String method;
+        private final String url;
+        private final String body;
+        private final long deadline;
+        private final BasicFuture<String> result;
+        private final EndpointGuard.Compartment compartment;
+        private final OperationMetrics operation;
+        private long start;
+        private long operationStart;
+
+        private Call(OktaClient org, String method, String url, String body, long deadline, BasicFuture<String> result,
+                     EndpointGuard.Compartment compartment, OperationMetrics operation) {
+            this.org = org;
+            this.method = method;
+            this.url = url;
+            this.body = body;
+            this.deadline = deadline;
+            this.result = result;
+            this.compartment = compartment;
+            this.operation = operation;
+        }
+
+        @Override
+        public void run() {
+            if (result.isCancelled()) {
+                compartment.release();
+                return;
+            }
+            start = System.currentTimeMillis();
+            if (operation != null) {
+                operationStart = operation.begin();
+            }
+            RequestBuilder request = RequestBuilder.create(method).setUri(url)
+                    .addHeader("Authorization", org.getApiToken())
+                    .addHeader("Accept", "application/json");
+            if (body != null) {
+                request.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+            }
+            http.execute(request.build(), this);
+        }
+
+        @Override
+        public void completed(HttpResponse response) {
+            try {
+                int status = response.getStatusLine().getStatusCode();
+                if (operation != null) {
+                    operation.end(status, operationStart);
+                }
+                HttpEntity entity = response.getEntity();
+                byte[] bytes = entity != null ? EntityUtils.toByteArray(entity) : new byte[0];
+                if (operation != null) {
+                    operation.addResponseBytes(bytes.length);
+                }
+                String content = new String(bytes, "UTF-8");
+                RateLimitScheduler rateLimiter = org.getRateLimiter();
+                if (rateLimiter != null) {
+                    String family = OktaClient.family(url);
+                    rateLimiter.update(family, header(response, "X-Rate-Limit-Limit"),
+                            header(response, "X-Rate-Limit-Remaining"), header(response, "X-Rate-Limit-Reset"));
+                    if (status == 429 && System.currentTimeMillis() < deadline) {
+                        schedule(this, rateLimiter.resetDelay(family));
+                        return;
+                    }
+                }
+                compartment.exit(status >= 500, System.currentTimeMillis() - start);
+                if (status > 206) {
+                    result.failed(new OktaException(status, method, url, content, OktaClient.retryAfter(status,
+                            header(response, "Retry-After"), header(response, "X-Rate-Limit-Reset"))));
+                } else {
+                    result.completed(content);
+                }
+            } catch (IOException e) {
+                compartment.exit(true, System.currentTimeMillis() - start);
+                result.failed(e);
+            }
+        }
+
+        @Override
+        public void failed(Exception e) {
+            if (operation != null) {
+                operation.end(0, operationStart);
+            }
+            compartment.exit(true, System.currentTimeMillis() - start);
+            result.failed(e);
+        }
+
+        @Override
+        public void cancelled() {
+            if (operation != null) {
+                operation.end(0, operationStart);
+            }
+            compartment.release();
+            result.cancel();
+        }
+    }
+
+    private static String header(HttpResponse response, String name) {
+        return response.getFirstHeader(name) != null ? response.getFirstHeader(name).getValue() : null;
+    }
+}
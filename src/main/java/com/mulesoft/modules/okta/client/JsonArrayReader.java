@@ -0,0 +1,52 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Splits a JSON array response into its elements while reading the stream, so
+ * that a page of results never has to be held as one string.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class JsonArrayReader {
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    /**
+     * @param stream JSON array, closed when done
+     * @return the elements of the array, each serialized as JSON
+     * @throws IOException if the stream cannot be read or is not a JSON array
+     */
+    public static List<String> readElements(InputStream stream) throws IOException {
+        List<String> elements = new ArrayList<String>();
+        JsonParser parser = FACTORY.createParser(stream);
+        try {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array but got " + parser.getCurrentToken());
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                StringWriter element = new StringWriter();
+                JsonGenerator generator = FACTORY.createGenerator(element);
+                generator.copyCurrentStructure(parser);
+                generator.close();
+                elements.add(element.toString());
+            }
+        } finally {
+            parser.close();
+            stream.close();
+        }
+        return elements;
+    }
+}
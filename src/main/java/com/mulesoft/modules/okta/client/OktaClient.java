@@ -0,0 +1,553 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+
+import com.mulesoft.modules.okta.config.OktaConnectorConfig;
+import com.mulesoft.modules.okta.metrics.MeteredInputStream;
+import com.mulesoft.modules.okta.metrics.MetricsLevel;
+import com.mulesoft.modules.okta.metrics.MetricsRegistry;
+import com.mulesoft.modules.okta.metrics.OperationMetrics;
+import com.mulesoft.modules.okta.ratelimit.RateLimitExceededException;
+import com.mulesoft.modules.okta.ratelimit.RateLimitScheduler;
+import com.mulesoft.modules.okta.resilience.CallRejectedException;
+import com.mulesoft.modules.okta.resilience.EndpointGuard;
+import com.mulesoft.modules.okta.resilience.HedgedExecutor;
+import com.mulesoft.modules.okta.resilience.RetryPolicy;
+
+/**
+ * HTTP client shared by all the operations of a connector. Connections are
+ * pooled and kept alive, and gzip encoded responses are decoded transparently.
+ * Further orgs are reached through clients created by {@link #forOrg(String, String)},
+ * which share the connection pool, bulkheads and hedging threads of this one but
+ * keep their own rate limit budget, circuit breakers and metrics.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class OktaClient {
+    private final OktaConnectorConfig config;
+    private final String host;
+    private final String apiToken;
+    private final boolean owner;
+    private final RequestCoalescer coalescer;
+    private final RateLimitScheduler rateLimiter;
+    private final RetryPolicy retryPolicy;
+    private final HedgedExecutor hedger;
+    private final EndpointGuard guard;
+    private final MetricsRegistry metrics;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient http;
+
+    public OktaClient(OktaConnectorConfig config) {
+        this.config = config;
+        this.host = config.getHost();
+        this.apiToken = config.getApiToken();
+        this.owner = true;
+        // one SSL context for the pool, so TLS sessions are resumed across connections
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        this.connectionManager.setMaxTotal(config.getMaxConnections());
+        this.connectionManager.setDefaultMaxPerRoute(config.getMaxConnections());
+        this.http = createHttpClient(config, connectionManager);
+        this.coalescer = config.isCoalesceRequests() ? new RequestCoalescer() : null;
+        this.rateLimiter = createRateLimiter(config);
+        this.retryPolicy = new RetryPolicy(config.getMaxRetries(), config.getRetryInitialBackoff(), config.getRetryMaxBackoff());
+        this.guard = new EndpointGuard(config);
+        this.metrics = createMetrics(config, host);
+        this.hedger = config.isHedgingEnabled() ? new HedgedExecutor(config.getHedgingPercentile(), config.getHedgingMinDelay()) : null;
+    }
+
+    private OktaClient(OktaClient shared, String host, String apiToken) {
+        this.config = shared.config;
+        this.host = host;
+        this.apiToken = apiToken;
+        this.owner = false;
+        this.connectionManager = shared.connectionManager;
+        this.http = shared.http;
+        this.coalescer = config.isCoalesceRequests() ? new RequestCoalescer() : null;
+        this.rateLimiter = createRateLimiter(config);
+        this.retryPolicy = shared.retryPolicy;
+        this.guard = shared.guard.forOrg(config);
+        this.metrics = createMetrics(config, host);
+        this.hedger = shared.hedger;
+    }
+
+    /**
+     * @param host host name of another org
+     * @param apiToken API token of the org
+     * @return a client for the org, sharing the connections and threads of this client
+     */
+    public OktaClient forOrg(String host, String apiToken) {
+        return new OktaClient(this, host, "SSWS " + apiToken);
+    }
+
+    /**
+     * @return host name of the org of this client
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * @return value of the Authorization header sent to the org
+     */
+    public String getApiToken() {
+        return apiToken;
+    }
+
+    /**
+     * @param path API path relative to the version, e.g. "/users"
+     * @param query query parameters, null values are skipped
+     * @return absolute URL of the resource
+     */
+    public String url(String path, Map<String, ?> query) {
+        StringBuilder url = new StringBuilder(config.getProtocol()).append("://").append(host)
+                .append("/api/").append(config.getVersion()).append(path);
+        if (query != null) {
+            char separator = '?';
+            for (Map.Entry<String, ?> param : query.entrySet()) {
+                if (param.getValue() == null) {
+                    continue;
+                }
+                url.append(separator).append(encode(param.getKey())).append('=').append(encode(String.valueOf(param.getValue())));
+                separator = '&';
+            }
+        }
+        return url.toString();
+    }
+
+    /**
+     * Executes a GET and reads the whole body. Identical GETs issued while one is
+     * in flight share its result when request coalescing is enabled. Since a GET
+     * is idempotent, transient failures are retried and slow calls may be hedged.
+     *
+     * @param url absolute URL, see {@link #url(String, Map)}
+     * @return the body of the response
+     * @throws IOException if the call fails, or {@link OktaException} if the status is above 206
+     */
+    public String get(final String url) throws IOException {
+        final Callable<String> attempt = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return execute("GET", url, null).asString();
+            }
+        };
+        Callable<String> call = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return retryPolicy.execute(hedger != null ? hedged(attempt) : attempt);
+            }
+        };
+        if (coalescer == null) {
+            try {
+                return call.call();
+            } catch (IOException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+        return coalescer.execute(url, call);
+    }
+
+    private Callable<String> hedged(final Callable<String> attempt) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return hedger.execute(attempt);
+            }
+        };
+    }
+
+    /**
+     * Executes a call and returns the open response. Calls are paced according to
+     * the rate limit of their endpoint family and queued, rather than failed, when
+     * Okta answers 429. They are rejected without calling Okta when the bulkhead of
+     * their endpoint family is full or its circuit breaker is open. The call holds its
+     * bulkhead permit, and its latency is measured, until the body is read or closed.
+     *
+     * @param method HTTP method
+     * @param url absolute URL, see {@link #url(String, Map)}
+     * @param body JSON request body or null
+     * @return the response, which must be closed by the caller
+     * @throws IOException if the call fails, {@link OktaException} if the status is above 206,
+     *         or {@link CallRejectedException} or {@link RateLimitExceededException} if the call was not sent
+     */
+    public OktaResponse execute(String method, String url, String body) throws IOException {
+        String path = path(url);
+        String family = RateLimitScheduler.family(path);
+        EndpointGuard.Compartment compartment = guard.compartment(path);
+        OperationMetrics operation = metrics != null ? metrics.operation(method, path) : null;
+        compartment.enter();
+        Attempt attempt = null;
+        boolean failed = false;
+        boolean returned = false;
+        try {
+            long deadline = System.currentTimeMillis() + config.getRateLimitMaxWait() * 1000L;
+            while (true) {
+                if (rateLimiter != null) {
+                    rateLimiter.acquire(family);
+                }
+                attempt = new Attempt(operation);
+                OktaResponse response;
+                try {
+                    response = send(method, url, body, true, attempt);
+                } catch (IOException e) {
+                    failed = true;
+                    throw e;
+                }
+                if (rateLimiter != null) {
+                    rateLimiter.update(family, response.getHeader("X-Rate-Limit-Limit"),
+                            response.getHeader("X-Rate-Limit-Remaining"), response.getHeader("X-Rate-Limit-Reset"));
+                    if (response.getStatus() == 429 && System.currentTimeMillis() < deadline) {
+                        response.close();
+                        rateLimiter.awaitReset(family);
+                        continue;
+                    }
+                }
+                if (response.getStatus() > 206) {
+                    failed = response.getStatus() >= 500;
+                    throw new OktaException(response.getStatus(), method, url, response.asString(), retryAfter(response));
+                }
+                returned = true;
+                return response;
+            }
+        } finally {
+            if (attempt == null) {
+                compartment.release();
+            } else {
+                if (!returned) {
+                    attempt.end(failed);
+                }
+                attempt.exitWhenDone(compartment, failed);
+            }
+        }
+    }
+
+    /**
+     * @return rate limit status of every endpoint family, empty when rate limiting is disabled
+     */
+    public Map<String, Object> getRateLimitStatus() {
+        return rateLimiter != null ? rateLimiter.getStatus() : new LinkedHashMap<String, Object>();
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * @return the rate limit scheduler of this client, null when rate limiting is disabled
+     */
+    public RateLimitScheduler getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * @return the bulkheads and circuit breakers of this client
+     */
+    public EndpointGuard getGuard() {
+        return guard;
+    }
+
+    /**
+     * @return the operation metrics of this client, null when metrics are disabled
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return leased, pending, available and max connections of the pool
+     */
+    public Map<String, Object> getPoolStatistics() {
+        PoolStats stats = connectionManager.getTotalStats();
+        Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+        statistics.put("leased", stats.getLeased());
+        statistics.put("pending", stats.getPending());
+        statistics.put("available", stats.getAvailable());
+        statistics.put("max", stats.getMax());
+        return statistics;
+    }
+
+    /**
+     * @return number of hedged requests and current hedging delay, empty when hedging is disabled
+     */
+    public Map<String, Object> getHedgingStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+        if (hedger != null) {
+            statistics.put("hedged", hedger.getHedgedCount());
+            statistics.put("delay", hedger.getThreshold());
+        }
+        return statistics;
+    }
+
+    /**
+     * Closes the pooled connections, unless this client shares them with another one.
+     */
+    public void close() throws IOException {
+        if (metrics != null) {
+            metrics.close();
+        }
+        if (!owner) {
+            return;
+        }
+        if (hedger != null) {
+            hedger.close();
+        }
+        http.close();
+    }
+
+    /**
+     * Reads a public resource, such as the key set of an authorization server, without the API token.
+     *
+     * @param url absolute URL
+     * @return the body of the response
+     * @throws IOException if the call fails, or {@link OktaException} if the status is above 206
+     */
+    public String getPublic(String url) throws IOException {
+        OktaResponse response = send("GET", url, null, false, null);
+        if (response.getStatus() > 206) {
+            throw new OktaException(response.getStatus(), "GET", url, response.asString());
+        }
+        return response.asString();
+    }
+
+    private OktaResponse send(String method, String url, String body, boolean authenticated, Attempt attempt) throws IOException {
+        RequestBuilder request = RequestBuilder.create(method).setUri(url)
+                .addHeader("Accept", "application/json");
+        if (authenticated) {
+            request.addHeader("Authorization", apiToken);
+        }
+        if (body != null) {
+            request.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+        }
+
+        CloseableHttpResponse response = http.execute(request.build());
+        Map<String, List<String>> headers = new LinkedHashMap<String, List<String>>();
+        for (Header header : response.getAllHeaders()) {
+            List<String> values = headers.get(header.getName());
+            if (values == null) {
+                values = new ArrayList<String>(1);
+                headers.put(header.getName(), values);
+            }
+            values.add(header.getValue());
+        }
+        HttpEntity entity = response.getEntity();
+        InputStream stream = entity != null ? entity.getContent() : new ByteArrayInputStream(new byte[0]);
+        int status = response.getStatusLine().getStatusCode();
+        if (attempt != null) {
+            if (attempt.operation != null) {
+                stream = new MeteredInputStream(stream, attempt.operation);
+            }
+            stream = attempt.watch(stream, status);
+        }
+        return new OktaResponse(status, headers, stream);
+    }
+
+    private static RateLimitScheduler createRateLimiter(OktaConnectorConfig config) {
+        return config.isRateLimitEnabled()
+                ? new RateLimitScheduler(config.isRateLimitSmoothing(), config.getRateLimitMaxWait() * 1000L) : null;
+    }
+
+    private static MetricsRegistry createMetrics(OktaConnectorConfig config, String host) {
+        return config.getMetricsLevel() != MetricsLevel.NONE
+                ? new MetricsRegistry(config.getMetricsLevel(), host, config.isMetricsJmxEnabled()) : null;
+    }
+
+    private static CloseableHttpClient createHttpClient(OktaConnectorConfig config, PoolingHttpClientConnectionManager connectionManager) {
+        final long keepAliveMillis = config.getKeepAlive() * 1000L;
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(config.getConnectTimeout())
+                .setSocketTimeout(config.getReadTimeout())
+                .setConnectionRequestTimeout(config.getConnectTimeout())
+                .build();
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
+                    @Override
+                    public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                        long duration = super.getKeepAliveDuration(response, context);
+                        return duration > 0 ? Math.min(duration, keepAliveMillis) : keepAliveMillis;
+                    }
+                })
+                .evictIdleConnections(keepAliveMillis, TimeUnit.MILLISECONDS)
+                .setUserAgent("mule-module-okta")
+                .build();
+    }
+
+    /**
+     * @return the delay asked by Retry-After in seconds or, on 429, until X-Rate-Limit-Reset, in milliseconds
+     */
+    private static long retryAfter(OktaResponse response) {
+        return retryAfter(response.getStatus(), response.getHeader("Retry-After"), response.getHeader("X-Rate-Limit-Reset"));
+    }
+
+    /**
+     * @param status status of the response
+     * @param retryAfter value of Retry-After, may be null
+     * @param reset value of X-Rate-Limit-Reset, may be null
+     * @return how long Okta asked to wait before retrying, in milliseconds, 0 if unknown
+     */
+    static long retryAfter(int status, String retryAfter, String reset) {
+        try {
+            if (retryAfter != null) {
+                return Long.parseLong(retryAfter.trim()) * 1000L;
+            }
+            if (status == 429 && reset != null) {
+                return Math.max(0, Long.parseLong(reset.trim()) * 1000L - System.currentTimeMillis());
+            }
+        } catch (NumberFormatException e) {
+            // HTTP-date or malformed value, fall back to the computed backoff
+        }
+        return 0;
+    }
+
+    static String family(String url) {
+        return RateLimitScheduler.family(path(url));
+    }
+
+    static String path(String url) {
+        int api = url.indexOf("/api/");
+        int path = api < 0 ? -1 : url.indexOf('/', api + 5);
+        return path < 0 ? "" : url.substring(path);
+    }
+
+    /**
+     * @param segment value of a path segment, e.g. a user id or login
+     * @return the segment encoded for use in a URL path
+     */
+    public static String segment(String segment) {
+        return encode(segment).replace("+", "%20");
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * One attempt of a call, which ends when its response body is read to the end or closed,
+     * so that latencies include the transfer of the body and not only the time to the headers.
+     */
+    private static class Attempt {
+        private final OperationMetrics operation;
+        private final long operationStart;
+        private final long start = System.currentTimeMillis();
+        private int status;
+        private boolean failed;
+        private boolean ended;
+        private long latency;
+        private EndpointGuard.Compartment compartment;
+
+        private Attempt(OperationMetrics operation) {
+            this.operation = operation;
+            this.operationStart = operation != null ? operation.begin() : 0;
+        }
+
+        private InputStream watch(InputStream body, int status) {
+            this.status = status;
+            return new FilterInputStream(body) {
+                @Override
+                public int read() throws IOException {
+                    try {
+                        int b = super.read();
+                        if (b < 0) {
+                            end(false);
+                        }
+                        return b;
+                    } catch (IOException e) {
+                        end(true);
+                        throw e;
+                    }
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    try {
+                        int read = super.read(buffer, offset, length);
+                        if (read < 0) {
+                            end(false);
+                        }
+                        return read;
+                    } catch (IOException e) {
+                        end(true);
+                        throw e;
+                    }
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        end(false);
+                    }
+                }
+            };
+        }
+
+        /**
+         * @param failure true if the body could not be read
+         */
+        private synchronized void end(boolean failure) {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            failed |= failure;
+            latency = System.currentTimeMillis() - start;
+            if (operation != null) {
+                operation.end(status, operationStart);
+            }
+            if (compartment != null) {
+                compartment.exit(failed, latency);
+            }
+        }
+
+        /**
+         * Leaves the compartment of the call when the attempt ends, now if it already has.
+         */
+        private synchronized void exitWhenDone(EndpointGuard.Compartment compartment, boolean failure) {
+            failed |= failure;
+            if (ended) {
+                compartment.exit(failed, latency);
+            } else {
+                this.compartment = compartment;
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.client;
+
+import java.io.IOException;
+
+/**
+ * Thrown when Okta answers with a status above 206.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class OktaException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+    private final String body;
+    private final long retryAfterMillis;
+
+    public OktaException(int status, String method, String url, String body) {
+        this(status, method, url, body, 0);
+    }
+
+    public OktaException(int status, String method, String url, String body, long retryAfterMillis) {
+        super("Okta returned HTTP " + status + " for " + method + " " + url + ": " + body);
+        this.status = status;
+        this.body = body;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the error object returned by Okta
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * @return true if the call may succeed when retried (429 or 5xx)
+     */
+    public boolean isTransient() {
+        return status == 429 || status >= 500;
+    }
+
+    /**
+     * @return how long Okta asked to wait before retrying, in milliseconds, 0 if unknown
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
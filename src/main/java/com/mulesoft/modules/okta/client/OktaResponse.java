@@ -0,0 +1,101 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Response of a call to the Okta API. The body is exposed as a stream so large
+ * responses can be consumed without being buffered as a single string.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class OktaResponse implements Closeable {
+    private static final Pattern LINK = Pattern.compile("<([^>]+)>\\s*;\\s*rel=\"([^\"]+)\"");
+
+    private final int status;
+    private final Map<String, List<String>> headers;
+    private final InputStream body;
+
+    public OktaResponse(int status, Map<String, List<String>> headers, InputStream body) {
+        this.status = status;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @param name header name, case insensitive
+     * @return first value of the header or null if it is not present
+     */
+    public String getHeader(String name) {
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (entry.getKey() != null && entry.getKey().equalsIgnoreCase(name) && !entry.getValue().isEmpty()) {
+                return entry.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param rel link relation, e.g. "next"
+     * @return the URL of the matching Link header or null if there is none
+     */
+    public String getLink(String rel) {
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (entry.getKey() == null || !entry.getKey().equalsIgnoreCase("Link")) {
+                continue;
+            }
+            for (String value : entry.getValue()) {
+                Matcher matcher = LINK.matcher(value);
+                while (matcher.find()) {
+                    if (rel.equals(matcher.group(2))) {
+                        return matcher.group(1);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    public InputStream getBody() {
+        return body;
+    }
+
+    /**
+     * Reads the whole body and closes the response.
+     *
+     * @return the body as a UTF-8 string
+     * @throws IOException if the body cannot be read
+     */
+    public String asString() throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        body.close();
+    }
+}
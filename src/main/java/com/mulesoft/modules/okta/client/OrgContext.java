@@ -0,0 +1,65 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.client;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Org the operations of the current thread are sent to, when it is not the
+ * default org of the configuration.
+ *
+ * @author MuleSoft, Inc.
+ */
+public final class OrgContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<String>();
+
+    private OrgContext() {
+    }
+
+    /**
+     * @return host of the current org, null for the default org
+     */
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @param org host of the org, null for the default org
+     * @return the previous org, to pass to {@link #restore(String)}
+     */
+    public static String enter(String org) {
+        String previous = CURRENT.get();
+        CURRENT.set(org);
+        return previous;
+    }
+
+    public static void restore(String previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * @param task task to run on another thread
+     * @return the task, run in the org that is current now
+     */
+    public static <T> Callable<T> propagate(final Callable<T> task) {
+        final String org = CURRENT.get();
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                String previous = enter(org);
+                try {
+                    return task.call();
+                } finally {
+                    restore(previous);
+                }
+            }
+        };
+    }
+}
@@ -1,10 +1,13 @@
 package com.mulesoft.modules.okta.config;
 
+import java.util.Map;
+
 import org.mule.api.annotations.components.Configuration;
 import org.mule.api.annotations.Configurable;
 import org.mule.api.annotations.param.Default;
-import org.mule.api.annotations.rest.RestHeaderParam;
-import org.mule.api.annotations.rest.RestUriParam;
+import org.mule.api.annotations.param.Optional;
+
+import com.mulesoft.modules.okta.metrics.MetricsLevel;
 
 @Configuration(friendlyName = "Configuration")
 public class OktaConnectorConfig {
@@ -12,24 +15,338 @@ public class OktaConnectorConfig {
      * API Token
      */
     @Configurable
-    @RestHeaderParam("Authorization")
     private String apiToken;
 
     /**
      * Okta host name
      */
     @Configurable
-    @RestUriParam("host")
     private String host;
 
+    /**
+     * Scheme used to reach Okta; http is only meant for local stubs
+     */
+    @Configurable
+    @Default("https")
+    private String protocol;
+
+    /**
+     * Further orgs reachable through with-org: host name of each org and its API token
+     */
+    @Configurable
+    @Optional
+    private Map<String, String> orgs;
+
     /**
      * Okta API Version
      */
     @Configurable
-    @RestUriParam("version")
     @Default("v1")
     private String version;
 
+    /**
+     * Cache the results of getUser, getUserGroups and getUserAppLinks
+     */
+    @Configurable
+    @Default("false")
+    private boolean userCacheEnabled;
+
+    /**
+     * Maximum number of user resources kept in the cache
+     */
+    @Configurable
+    @Default("1000")
+    private int userCacheMaxEntries;
+
+    /**
+     * Time to live of cached user resources, in seconds
+     */
+    @Configurable
+    @Default("60")
+    private int userCacheTtl;
+
+    /**
+     * Share the result of identical read operations issued while one is in flight
+     */
+    @Configurable
+    @Default("true")
+    private boolean coalesceRequests;
+
+    /**
+     * Answer extendSession from memory for sessions validated recently
+     */
+    @Configurable
+    @Default("false")
+    private boolean sessionCacheEnabled;
+
+    /**
+     * Maximum number of sessions kept in the cache
+     */
+    @Configurable
+    @Default("10000")
+    private int sessionCacheMaxEntries;
+
+    /**
+     * Fraction of the remaining lifetime of a session after which it is extended remotely again
+     */
+    @Configurable
+    @Default("0.5")
+    private double sessionRefreshFraction;
+
+    /**
+     * Key set used to verify tokens; derived from the issuer when not set
+     */
+    @Configurable
+    @Optional
+    private String jwksUrl;
+
+    /**
+     * Time between background refreshes of the token signing keys, in seconds
+     */
+    @Configurable
+    @Default("3600")
+    private int jwksRefreshInterval;
+
+    /**
+     * Keep an in-memory replica of user to group membership to answer getUserGroups and isGroupMember
+     */
+    @Configurable
+    @Default("false")
+    private boolean groupReplicaEnabled;
+
+    /**
+     * Time between two updates of the group replica from the System Log, in seconds
+     */
+    @Configurable
+    @Default("60")
+    private int groupReplicaSyncInterval;
+
+    /**
+     * Time between two full rebuilds of the group replica, in seconds
+     */
+    @Configurable
+    @Default("86400")
+    private int groupReplicaRebuildInterval;
+
+    /**
+     * Pace calls according to the X-Rate-Limit-* headers returned by Okta and queue them on 429
+     */
+    @Configurable
+    @Default("true")
+    private boolean rateLimitEnabled;
+
+    /**
+     * Spread the remaining rate limit budget evenly until the window is reset
+     */
+    @Configurable
+    @Default("true")
+    private boolean rateLimitSmoothing;
+
+    /**
+     * Longest a call may be queued waiting for rate limit budget, in seconds
+     */
+    @Configurable
+    @Default("30")
+    private int rateLimitMaxWait;
+
+    /**
+     * Maximum number of pooled connections to Okta
+     */
+    @Configurable
+    @Default("50")
+    private int maxConnections;
+
+    /**
+     * Connect timeout, also used when waiting for a pooled connection, in milliseconds
+     */
+    @Configurable
+    @Default("10000")
+    private int connectTimeout;
+
+    /**
+     * Read timeout, in milliseconds
+     */
+    @Configurable
+    @Default("60000")
+    private int readTimeout;
+
+    /**
+     * Longest an idle connection is kept alive in the pool, in seconds
+     */
+    @Configurable
+    @Default("30")
+    private int keepAlive;
+
+    /**
+     * Number of times getUser, listUsers, getUserGroups and getUserAppLinks are retried on 429, 5xx or I/O errors
+     */
+    @Configurable
+    @Default("2")
+    private int maxRetries;
+
+    /**
+     * Backoff before the first retry, doubled for every further retry, in milliseconds
+     */
+    @Configurable
+    @Default("200")
+    private int retryInitialBackoff;
+
+    /**
+     * Longest backoff between two retries, in milliseconds
+     */
+    @Configurable
+    @Default("10000")
+    private int retryMaxBackoff;
+
+    /**
+     * Send a second request for getUser, listUsers, getUserGroups and getUserAppLinks when the first one is slow
+     */
+    @Configurable
+    @Default("false")
+    private boolean hedgingEnabled;
+
+    /**
+     * Latency percentile after which a request is hedged
+     */
+    @Configurable
+    @Default("95")
+    private double hedgingPercentile;
+
+    /**
+     * Shortest delay before a request is hedged, in milliseconds
+     */
+    @Configurable
+    @Default("50")
+    private int hedgingMinDelay;
+
+    /**
+     * Maximum number of concurrent calls to the user endpoints, 0 for no limit
+     */
+    @Configurable
+    @Default("20")
+    private int usersConcurrency;
+
+    /**
+     * Maximum number of concurrent calls to the user lifecycle endpoints, 0 for no limit
+     */
+    @Configurable
+    @Default("10")
+    private int lifecycleConcurrency;
+
+    /**
+     * Maximum number of concurrent calls to the user credentials endpoints, 0 for no limit
+     */
+    @Configurable
+    @Default("10")
+    private int credentialsConcurrency;
+
+    /**
+     * Maximum number of concurrent calls to the authn endpoints, 0 for no limit
+     */
+    @Configurable
+    @Default("20")
+    private int authnConcurrency;
+
+    /**
+     * Maximum number of concurrent calls to the session endpoints, 0 for no limit
+     */
+    @Configurable
+    @Default("20")
+    private int sessionsConcurrency;
+
+    /**
+     * Maximum number of async calls in flight per endpoint family, 0 for no limit. Async calls
+     * over the limit fail at once rather than waiting
+     */
+    @Configurable
+    @Default("1000")
+    private int asyncConcurrency;
+
+    /**
+     * Longest a call may wait when its endpoint family is at its concurrency limit, in milliseconds
+     */
+    @Configurable
+    @Default("1000")
+    private int bulkheadMaxWait;
+
+    /**
+     * Fail fast, per endpoint family, once too many recent calls failed or were slow
+     */
+    @Configurable
+    @Default("true")
+    private boolean circuitBreakerEnabled;
+
+    /**
+     * Number of recent calls the failure and slow call rates are computed on
+     */
+    @Configurable
+    @Default("100")
+    private int circuitBreakerWindowSize;
+
+    /**
+     * Number of calls needed before the circuit breaker may open
+     */
+    @Configurable
+    @Default("20")
+    private int circuitBreakerMinimumCalls;
+
+    /**
+     * Percentage of calls failing with an I/O error or 5xx that opens the circuit breaker
+     */
+    @Configurable
+    @Default("50")
+    private double circuitBreakerFailureRate;
+
+    /**
+     * Percentage of slow calls that opens the circuit breaker
+     */
+    @Configurable
+    @Default("80")
+    private double circuitBreakerSlowCallRate;
+
+    /**
+     * Latency above which a call is slow, in milliseconds
+     */
+    @Configurable
+    @Default("5000")
+    private int circuitBreakerSlowCallDuration;
+
+    /**
+     * Time the circuit breaker stays open before trial calls are let through, in seconds
+     */
+    @Configurable
+    @Default("30")
+    private int circuitBreakerOpenDuration;
+
+    /**
+     * Calls recorded per operation: NONE, COUNTERS (requests, statuses, in-flight and bytes) or FULL (counters and latency histograms)
+     */
+    @Configurable
+    @Default("COUNTERS")
+    private MetricsLevel metricsLevel;
+
+    /**
+     * Publish the operation metrics over JMX
+     */
+    @Configurable
+    @Default("true")
+    private boolean metricsJmxEnabled;
+
+    /**
+     * Maximum number of users whose last known profile is kept by update-user-delta
+     */
+    @Configurable
+    @Default("10000")
+    private int profileStateMaxEntries;
+
+    /**
+     * Time a known profile is trusted by update-user-delta, in seconds; changes made outside the connector
+     * within that time are not detected
+     */
+    @Configurable
+    @Default("3600")
+    private int profileStateTtl;
+
     public String getApiToken() {
 		return apiToken;
 	}
@@ -46,6 +363,14 @@ public class OktaConnectorConfig {
 		this.host = host;
 	}
 
+	public String getProtocol() {
+		return protocol;
+	}
+
+	public void setProtocol(String protocol) {
+		this.protocol = protocol;
+	}
+
 	public String getVersion() {
 		return version;
 	}
@@ -53,4 +378,356 @@ public class OktaConnectorConfig {
 	public void setVersion(String version) {
 		this.version = version;
 	}
+
+	public boolean isUserCacheEnabled() {
+		return userCacheEnabled;
+	}
+
+	public void setUserCacheEnabled(boolean userCacheEnabled) {
+		this.userCacheEnabled = userCacheEnabled;
+	}
+
+	public int getUserCacheMaxEntries() {
+		return userCacheMaxEntries;
+	}
+
+	public void setUserCacheMaxEntries(int userCacheMaxEntries) {
+		this.userCacheMaxEntries = userCacheMaxEntries;
+	}
+
+	public int getUserCacheTtl() {
+		return userCacheTtl;
+	}
+
+	public void setUserCacheTtl(int userCacheTtl) {
+		this.userCacheTtl = userCacheTtl;
+	}
+
+	public boolean isCoalesceRequests() {
+		return coalesceRequests;
+	}
+
+	public void setCoalesceRequests(boolean coalesceRequests) {
+		this.coalesceRequests = coalesceRequests;
+	}
+
+	public boolean isRateLimitEnabled() {
+		return rateLimitEnabled;
+	}
+
+	public void setRateLimitEnabled(boolean rateLimitEnabled) {
+		this.rateLimitEnabled = rateLimitEnabled;
+	}
+
+	public boolean isRateLimitSmoothing() {
+		return rateLimitSmoothing;
+	}
+
+	public void setRateLimitSmoothing(boolean rateLimitSmoothing) {
+		this.rateLimitSmoothing = rateLimitSmoothing;
+	}
+
+	public int getRateLimitMaxWait() {
+		return rateLimitMaxWait;
+	}
+
+	public void setRateLimitMaxWait(int rateLimitMaxWait) {
+		this.rateLimitMaxWait = rateLimitMaxWait;
+	}
+
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	public void setMaxConnections(int maxConnections) {
+		this.maxConnections = maxConnections;
+	}
+
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+
+	public void setReadTimeout(int readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+
+	public int getKeepAlive() {
+		return keepAlive;
+	}
+
+	public void setKeepAlive(int keepAlive) {
+		this.keepAlive = keepAlive;
+	}
+
+	public boolean isSessionCacheEnabled() {
+		return sessionCacheEnabled;
+	}
+
+	public void setSessionCacheEnabled(boolean sessionCacheEnabled) {
+		this.sessionCacheEnabled = sessionCacheEnabled;
+	}
+
+	public int getSessionCacheMaxEntries() {
+		return sessionCacheMaxEntries;
+	}
+
+	public void setSessionCacheMaxEntries(int sessionCacheMaxEntries) {
+		this.sessionCacheMaxEntries = sessionCacheMaxEntries;
+	}
+
+	public double getSessionRefreshFraction() {
+		return sessionRefreshFraction;
+	}
+
+	public void setSessionRefreshFraction(double sessionRefreshFraction) {
+		this.sessionRefreshFraction = sessionRefreshFraction;
+	}
+
+	public String getJwksUrl() {
+		return jwksUrl;
+	}
+
+	public void setJwksUrl(String jwksUrl) {
+		this.jwksUrl = jwksUrl;
+	}
+
+	public int getJwksRefreshInterval() {
+		return jwksRefreshInterval;
+	}
+
+	public void setJwksRefreshInterval(int jwksRefreshInterval) {
+		this.jwksRefreshInterval = jwksRefreshInterval;
+	}
+
+	public boolean isGroupReplicaEnabled() {
+		return groupReplicaEnabled;
+	}
+
+	public void setGroupReplicaEnabled(boolean groupReplicaEnabled) {
+		this.groupReplicaEnabled = groupReplicaEnabled;
+	}
+
+	public int getGroupReplicaSyncInterval() {
+		return groupReplicaSyncInterval;
+	}
+
+	public void setGroupReplicaSyncInterval(int groupReplicaSyncInterval) {
+		this.groupReplicaSyncInterval = groupReplicaSyncInterval;
+	}
+
+	public int getGroupReplicaRebuildInterval() {
+		return groupReplicaRebuildInterval;
+	}
+
+	public void setGroupReplicaRebuildInterval(int groupReplicaRebuildInterval) {
+		this.groupReplicaRebuildInterval = groupReplicaRebuildInterval;
+	}
+
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	public void setMaxRetries(int maxRetries) {
+		this.maxRetries = maxRetries;
+	}
+
+	public int getRetryInitialBackoff() {
+		return retryInitialBackoff;
+	}
+
+	public void setRetryInitialBackoff(int retryInitialBackoff) {
+		this.retryInitialBackoff = retryInitialBackoff;
+	}
+
+	public int getRetryMaxBackoff() {
+		return retryMaxBackoff;
+	}
+
+	public void setRetryMaxBackoff(int retryMaxBackoff) {
+		this.retryMaxBackoff = retryMaxBackoff;
+	}
+
+	public boolean isHedgingEnabled() {
+		return hedgingEnabled;
+	}
+
+	public void setHedgingEnabled(boolean hedgingEnabled) {
+		this.hedgingEnabled = hedgingEnabled;
+	}
+
+	public double getHedgingPercentile() {
+		return hedgingPercentile;
+	}
+
+	public void setHedgingPercentile(double hedgingPercentile) {
+		this.hedgingPercentile = hedgingPercentile;
+	}
+
+	public int getHedgingMinDelay() {
+		return hedgingMinDelay;
+	}
+
+	public void setHedgingMinDelay(int hedgingMinDelay) {
+		this.hedgingMinDelay = hedgingMinDelay;
+	}
+
+	public int getUsersConcurrency() {
+		return usersConcurrency;
+	}
+
+	public void setUsersConcurrency(int usersConcurrency) {
+		this.usersConcurrency = usersConcurrency;
+	}
+
+	public int getLifecycleConcurrency() {
+		return lifecycleConcurrency;
+	}
+
+	public void setLifecycleConcurrency(int lifecycleConcurrency) {
+		this.lifecycleConcurrency = lifecycleConcurrency;
+	}
+
+	public int getCredentialsConcurrency() {
+		return credentialsConcurrency;
+	}
+
+	public void setCredentialsConcurrency(int credentialsConcurrency) {
+		this.credentialsConcurrency = credentialsConcurrency;
+	}
+
+	public int getAuthnConcurrency() {
+		return authnConcurrency;
+	}
+
+	public void setAuthnConcurrency(int authnConcurrency) {
+		this.authnConcurrency = authnConcurrency;
+	}
+
+	public int getSessionsConcurrency() {
+		return sessionsConcurrency;
+	}
+
+	public void setSessionsConcurrency(int sessionsConcurrency) {
+		this.sessionsConcurrency = sessionsConcurrency;
+	}
+
+	public int getAsyncConcurrency() {
+		return asyncConcurrency;
+	}
+
+	public void setAsyncConcurrency(int asyncConcurrency) {
+		this.asyncConcurrency = asyncConcurrency;
+	}
+
+	public int getBulkheadMaxWait() {
+		return bulkheadMaxWait;
+	}
+
+	public void setBulkheadMaxWait(int bulkheadMaxWait) {
+		this.bulkheadMaxWait = bulkheadMaxWait;
+	}
+
+	public boolean isCircuitBreakerEnabled() {
+		return circuitBreakerEnabled;
+	}
+
+	public void setCircuitBreakerEnabled(boolean circuitBreakerEnabled) {
+		this.circuitBreakerEnabled = circuitBreakerEnabled;
+	}
+
+	public int getCircuitBreakerWindowSize() {
+		return circuitBreakerWindowSize;
+	}
+
+	public void setCircuitBreakerWindowSize(int circuitBreakerWindowSize) {
+		this.circuitBreakerWindowSize = circuitBreakerWindowSize;
+	}
+
+	public int getCircuitBreakerMinimumCalls() {
+		return circuitBreakerMinimumCalls;
+	}
+
+	public void setCircuitBreakerMinimumCalls(int circuitBreakerMinimumCalls) {
+		this.circuitBreakerMinimumCalls = circuitBreakerMinimumCalls;
+	}
+
+	public double getCircuitBreakerFailureRate() {
+		return circuitBreakerFailureRate;
+	}
+
+	public void setCircuitBreakerFailureRate(double circuitBreakerFailureRate) {
+		this.circuitBreakerFailureRate = circuitBreakerFailureRate;
+	}
+
+	public double getCircuitBreakerSlowCallRate() {
+		return circuitBreakerSlowCallRate;
+	}
+
+	public void setCircuitBreakerSlowCallRate(double circuitBreakerSlowCallRate) {
+		this.circuitBreakerSlowCallRate = circuitBreakerSlowCallRate;
+	}
+
+	public int getCircuitBreakerSlowCallDuration() {
+		return circuitBreakerSlowCallDuration;
+	}
+
+	public void setCircuitBreakerSlowCallDuration(int circuitBreakerSlowCallDuration) {
+		this.circuitBreakerSlowCallDuration = circuitBreakerSlowCallDuration;
+	}
+
+	public int getCircuitBreakerOpenDuration() {
+		return circuitBreakerOpenDuration;
+	}
+
+	public void setCircuitBreakerOpenDuration(int circuitBreakerOpenDuration) {
+		this.circuitBreakerOpenDuration = circuitBreakerOpenDuration;
+	}
+
+	public MetricsLevel getMetricsLevel() {
+		return metricsLevel;
+	}
+
+	public void setMetricsLevel(MetricsLevel metricsLevel) {
+		this.metricsLevel = metricsLevel;
+	}
+
+	public boolean isMetricsJmxEnabled() {
+		return metricsJmxEnabled;
+	}
+
+	public void setMetricsJmxEnabled(boolean metricsJmxEnabled) {
+		this.metricsJmxEnabled = metricsJmxEnabled;
+	}
+
+	public Map<String, String> getOrgs() {
+		return orgs;
+	}
+
+	public void setOrgs(Map<String, String> orgs) {
+		this.orgs = orgs;
+	}
+
+	public int getProfileStateMaxEntries() {
+		return profileStateMaxEntries;
+	}
+
+	public void setProfileStateMaxEntries(int profileStateMaxEntries) {
+		this.profileStateMaxEntries = profileStateMaxEntries;
+	}
+
+	public int getProfileStateTtl() {
+		return profileStateTtl;
+	}
+
+	public void setProfileStateTtl(int profileStateTtl) {
+		this.profileStateTtl = profileStateTtl;
+	}
 }
\ No newline at end of file
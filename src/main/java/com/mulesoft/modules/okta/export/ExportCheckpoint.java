@@ -0,0 +1,58 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.export;
+
+/**
+ * Progress of an export: the page to read next and the length of the file once
+ * every page before it was written.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class ExportCheckpoint {
+
+    private final String file;
+    private final long position;
+    private final long users;
+    private final String nextUrl;
+
+    public ExportCheckpoint(String file, long position, long users, String nextUrl) {
+        this.file = file;
+        this.position = position;
+        this.users = users;
+        this.nextUrl = nextUrl;
+    }
+
+    /**
+     * @param value value returned by {@link #encode()}, or null
+     * @return the checkpoint, or null if there is none
+     */
+    public static ExportCheckpoint decode(String value) {
+        if (value == null) {
+            return null;
+        }
+        String[] fields = value.split("\n", 4);
+        return new ExportCheckpoint(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[3]);
+    }
+
+    public String encode() {
+        return file + "\n" + position + "\n" + users + "\n" + nextUrl;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public long getUsers() {
+        return users;
+    }
+
+    public String getNextUrl() {
+        return nextUrl;
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends JSON lines to a file through a direct buffer, so the file is written
+ * in large blocks instead of one system call per line.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class NdjsonWriter implements Closeable {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * @param file file to write, created if it does not exist
+     * @param position length the file is truncated to before writing, 0 to start over
+     * @throws IOException if the file cannot be opened
+     */
+    public NdjsonWriter(Path file, long position) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        // drop whatever was written after the checkpoint
+        channel.truncate(position);
+        channel.position(position);
+    }
+
+    /**
+     * @param json a JSON value on a single line
+     */
+    public void write(String json) throws IOException {
+        byte[] line = json.getBytes(UTF8);
+        if (line.length + 1 > buffer.remaining()) {
+            flush();
+        }
+        if (line.length + 1 > buffer.capacity()) {
+            writeFully(ByteBuffer.wrap(line));
+            writeFully(ByteBuffer.wrap(new byte[] { '\n' }));
+            return;
+        }
+        buffer.put(line).put((byte) '\n');
+    }
+
+    /**
+     * Writes the buffered lines to the file.
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Writes the buffered lines and forces them to the storage device.
+     *
+     * @return length of the file
+     */
+    public long sync() throws IOException {
+        flush();
+        channel.force(false);
+        return channel.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.export;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.mulesoft.modules.okta.OktaConnector;
+import com.mulesoft.modules.okta.client.OrgContext;
+import com.mulesoft.modules.okta.model.JsonValues;
+import com.mulesoft.modules.okta.paging.UserPagingDelegate;
+import com.mulesoft.modules.okta.source.WatermarkStore;
+
+/**
+ * Writes every user of the org to a file, one JSON object per line, optionally
+ * with its groups and app links fetched in parallel. The next page is read
+ * while the current one is enriched, and the position in the result set is
+ * checkpointed so an interrupted export resumes where it left off.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class UserExport {
+
+    private final OktaConnector connector;
+    private final String firstUrl;
+    private final Path file;
+    private final WatermarkStore checkpoints;
+    private final boolean includeGroups;
+    private final boolean includeAppLinks;
+    private final int concurrency;
+    private final int checkpointInterval;
+
+    /**
+     * @param connector connector the calls are sent through
+     * @param firstUrl URL of the first page of users
+     * @param file file to write
+     * @param checkpoints store of the checkpoint
+     * @param includeGroups add the groups of each user as "groups"
+     * @param includeAppLinks add the app links of each user as "appLinks"
+     * @param concurrency number of users enriched at the same time
+     * @param checkpointInterval number of pages between two checkpoints
+     */
+    public UserExport(OktaConnector connector, String firstUrl, Path file, WatermarkStore checkpoints,
+                      boolean includeGroups, boolean includeAppLinks, int concurrency, int checkpointInterval) {
+        this.connector = connector;
+        this.firstUrl = firstUrl;
+        this.file = file;
+        this.checkpoints = checkpoints;
+        this.includeGroups = includeGroups;
+        this.includeAppLinks = includeAppLinks;
+        this.concurrency = concurrency;
+        this.checkpointInterval = Math.max(1, checkpointInterval);
+    }
+
+    /**
+     * @return file, users, bytes and resumedFrom (the number of users already exported by a previous run)
+     * @throws Exception if a call fails or the file cannot be written; the last checkpoint is kept
+     */
+    public Map<String, Object> run() throws Exception {
+        String path = file.toAbsolutePath().toString();
+        ExportCheckpoint checkpoint = ExportCheckpoint.decode(checkpoints.get(null));
+        if (checkpoint != null && (!checkpoint.getFile().equals(path) || !Files.exists(file) || Files.size(file) < checkpoint.getPosition())) {
+            // the checkpoint belongs to another file, or the file was removed since
+            checkpoint = null;
+        }
+        long resumedFrom = checkpoint != null ? checkpoint.getUsers() : 0;
+        long users = resumedFrom;
+
+        ExecutorService enrichers = includeGroups || includeAppLinks ? Executors.newFixedThreadPool(concurrency, new ThreadFactory() {
+            private final AtomicInteger threads = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "okta-export-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }) : null;
+        UserPagingDelegate pages = new UserPagingDelegate(connector.getClient(), checkpoint != null ? checkpoint.getNextUrl() : firstUrl, true);
+        NdjsonWriter writer = new NdjsonWriter(file, checkpoint != null ? checkpoint.getPosition() : 0);
+        long bytes;
+        try {
+            int sinceCheckpoint = 0;
+            for (List<String> page = pages.getPage(connector); !page.isEmpty(); page = pages.getPage(connector)) {
+                for (String line : enrich(page, enrichers)) {
+                    writer.write(line);
+                }
+                users += page.size();
+                String next = pages.getNextUrl();
+                if (next != null && ++sinceCheckpoint >= checkpointInterval) {
+                    checkpoints.set(new ExportCheckpoint(path, writer.sync(), users, next).encode());
+                    sinceCheckpoint = 0;
+                }
+            }
+            bytes = writer.sync();
+            checkpoints.clear();
+        } finally {
+            pages.close();
+            writer.close();
+            if (enrichers != null) {
+                enrichers.shutdownNow();
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<String, Object>();
+        result.put("file", path);
+        result.put("users", users);
+        result.put("bytes", bytes);
+        result.put("resumedFrom", resumedFrom);
+        return result;
+    }
+
+    private List<String> enrich(List<String> page, ExecutorService enrichers) throws Exception {
+        if (enrichers == null) {
+            return page;
+        }
+        List<Future<String>> groups = new ArrayList<Future<String>>(page.size());
+        List<Future<String>> appLinks = new ArrayList<Future<String>>(page.size());
+        for (String user : page) {
+            final String id = JsonValues.readField(user, "id");
+            groups.add(includeGroups ? enrichers.submit(OrgContext.propagate(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return connector.getUserGroups(id);
+                }
+            })) : null);
+            appLinks.add(includeAppLinks ? enrichers.submit(OrgContext.propagate(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return connector.getUserAppLinks(id);
+                }
+            })) : null);
+        }
+
+        List<String> lines = new ArrayList<String>(page.size());
+        for (int i = 0; i < page.size(); i++) {
+            String user = page.get(i).trim();
+            StringBuilder line = new StringBuilder(user.length() + 512).append(user, 0, user.length() - 1);
+            if (groups.get(i) != null) {
+                line.append(",\"groups\":").append(singleLine(await(groups.get(i))));
+            }
+            if (appLinks.get(i) != null) {
+                line.append(",\"appLinks\":").append(singleLine(await(appLinks.get(i))));
+            }
+            lines.add(line.append('}').toString());
+        }
+        return lines;
+    }
+
+    /**
+     * Line breaks can only be whitespace between tokens, since they are escaped inside strings.
+     */
+    private static String singleLine(String json) {
+        return json.indexOf('\n') < 0 ? json : json.replace("\r", "").replace("\n", "");
+    }
+
+    private static String await(Future<String> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.jwt;
+
+import java.util.Arrays;
+
+/**
+ * Base64url codec used by JSON Web Tokens and Keys (RFC 4648, section 5, without padding).
+ *
+ * @author MuleSoft, Inc.
+ */
+public class Base64Url {
+
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final int[] VALUES = new int[128];
+
+    static {
+        Arrays.fill(VALUES, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            VALUES[ALPHABET[i]] = i;
+        }
+        // accept the standard alphabet too
+        VALUES['+'] = 62;
+        VALUES['/'] = 63;
+    }
+
+    /**
+     * @param value base64url text, with or without padding
+     * @return the decoded bytes
+     * @throws IllegalArgumentException if the text is not valid base64url
+     */
+    public static byte[] decode(String value) {
+        int length = value.length();
+        while (length > 0 && value.charAt(length - 1) == '=') {
+            length--;
+        }
+        if (length % 4 == 1) {
+            throw new IllegalArgumentException("Invalid base64url length");
+        }
+        byte[] bytes = new byte[length * 3 / 4];
+        int buffer = 0;
+        int bits = 0;
+        int position = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            int sextet = c < 128 ? VALUES[c] : -1;
+            if (sextet < 0) {
+                throw new IllegalArgumentException("Invalid base64url character " + c);
+            }
+            buffer = (buffer << 6) | sextet;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                bytes[position++] = (byte) (buffer >> bits);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @param bytes bytes to encode
+     * @return base64url text without padding
+     */
+    public static String encode(byte[] bytes) {
+        StringBuilder text = new StringBuilder((bytes.length * 4 + 2) / 3);
+        int buffer = 0;
+        int bits = 0;
+        for (byte b : bytes) {
+            buffer = (buffer << 8) | (b & 0xff);
+            bits += 8;
+            while (bits >= 6) {
+                bits -= 6;
+                text.append(ALPHABET[(buffer >> bits) & 0x3f]);
+            }
+        }
+        if (bits > 0) {
+            text.append(ALPHABET[(buffer << (6 - bits)) & 0x3f]);
+        }
+        return text.toString();
+    }
+}
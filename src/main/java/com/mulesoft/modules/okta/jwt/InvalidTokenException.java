@@ -0,0 +1,24 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.jwt;
+
+/**
+ * Thrown when a token fails verification: malformed, badly signed, expired or
+ * issued for another issuer or audience.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class InvalidTokenException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidTokenException(String message) {
+        super(message);
+    }
+
+    public InvalidTokenException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
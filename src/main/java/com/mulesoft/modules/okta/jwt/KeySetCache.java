@@ -0,0 +1,141 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.jwt;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.mulesoft.modules.okta.model.JsonValues;
+
+/**
+ * RSA signing keys of an authorization server, indexed by key id. Keys are
+ * refreshed in the background, and reloaded right away when a token is signed
+ * with a key that is not known yet (key rotation).
+ *
+ * @author MuleSoft, Inc.
+ */
+public class KeySetCache {
+
+    private static final long MIN_RELOAD_INTERVAL_MILLIS = 30000;
+
+    private final KeySetSource source;
+    private final long minReloadIntervalMillis;
+    private final ScheduledExecutorService refresher;
+    private volatile Map<String, PublicKey> keys = Collections.emptyMap();
+    private long lastLoad;
+
+    /**
+     * @param source where the key set is read from
+     * @param refreshIntervalSeconds time between background refreshes, 0 to disable them
+     */
+    public KeySetCache(KeySetSource source, long refreshIntervalSeconds) {
+        this(source, refreshIntervalSeconds, MIN_RELOAD_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param source where the key set is read from
+     * @param refreshIntervalSeconds time between background refreshes, 0 to disable them
+     * @param minReloadIntervalMillis minimum time between reloads caused by unknown key ids
+     */
+    KeySetCache(KeySetSource source, long refreshIntervalSeconds, long minReloadIntervalMillis) {
+        this.source = source;
+        this.minReloadIntervalMillis = minReloadIntervalMillis;
+        if (refreshIntervalSeconds > 0) {
+            refresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "okta-jwks-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            refresher.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        reload();
+                    } catch (IOException e) {
+                        // keep the current keys, the next refresh or an unknown key id will retry
+                    }
+                }
+            }, refreshIntervalSeconds, refreshIntervalSeconds, TimeUnit.SECONDS);
+        } else {
+            refresher = null;
+        }
+    }
+
+    /**
+     * @param keyId kid of the token header
+     * @return the key, or null if the key set does not contain it even after a reload
+     * @throws IOException if the key set has to be loaded and cannot be fetched
+     */
+    public PublicKey getKey(String keyId) throws IOException {
+        PublicKey key = keys.get(keyId);
+        if (key == null && reloadAllowed()) {
+            reload();
+            key = keys.get(keyId);
+        }
+        return key;
+    }
+
+    /**
+     * Fetches the key set and replaces the cached keys.
+     *
+     * @throws IOException if the key set cannot be fetched or parsed
+     */
+    public void reload() throws IOException {
+        Map<String, PublicKey> loaded = parse(source.fetch());
+        synchronized (this) {
+            keys = loaded;
+            lastLoad = System.currentTimeMillis();
+        }
+    }
+
+    public void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    private synchronized boolean reloadAllowed() {
+        return System.currentTimeMillis() - lastLoad >= minReloadIntervalMillis || keys.isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, PublicKey> parse(String jwks) throws IOException {
+        Object entries = JsonValues.readObject(jwks).get("keys");
+        if (!(entries instanceof List)) {
+            throw new IOException("Key set has no keys");
+        }
+        Map<String, PublicKey> parsed = new HashMap<String, PublicKey>();
+        for (Object entry : (List<Object>) entries) {
+            Map<String, Object> jwk = (Map<String, Object>) entry;
+            if (!"RSA".equals(jwk.get("kty")) || jwk.get("kid") == null || jwk.get("n") == null || jwk.get("e") == null) {
+                continue;
+            }
+            try {
+                RSAPublicKeySpec spec = new RSAPublicKeySpec(
+                        new BigInteger(1, Base64Url.decode((String) jwk.get("n"))),
+                        new BigInteger(1, Base64Url.decode((String) jwk.get("e"))));
+                parsed.put((String) jwk.get("kid"), KeyFactory.getInstance("RSA").generatePublic(spec));
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Invalid key " + jwk.get("kid"), e);
+            }
+        }
+        return parsed;
+    }
+}
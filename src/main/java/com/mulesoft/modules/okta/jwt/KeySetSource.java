@@ -0,0 +1,21 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.jwt;
+
+import java.io.IOException;
+
+/**
+ * Source of a JSON Web Key Set document.
+ *
+ * @author MuleSoft, Inc.
+ */
+public interface KeySetSource {
+
+    /**
+     * @return the JWKS document, e.g. the body of https://{host}/oauth2/v1/keys
+     * @throws IOException if the key set cannot be fetched
+     */
+    String fetch() throws IOException;
+}
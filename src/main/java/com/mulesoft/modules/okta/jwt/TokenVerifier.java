@@ -0,0 +1,140 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.jwt;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Collection;
+import java.util.Map;
+
+import com.mulesoft.modules.okta.model.JsonValues;
+
+/**
+ * Verifies Okta-issued ID and access tokens locally: RS256/RS384/RS512 signature
+ * against the cached key set, then issuer, audience and time claims.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class TokenVerifier {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final KeySetCache keys;
+
+    public TokenVerifier(KeySetCache keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * @param token compact serialized JWT
+     * @param issuer expected iss claim
+     * @param audience expected aud claim, not checked when null
+     * @param clockSkewSeconds tolerance applied to exp, nbf and iat
+     * @return the claims of the token
+     * @throws InvalidTokenException if the token does not pass verification
+     * @throws IOException if the key set has to be loaded and cannot be fetched
+     */
+    public Map<String, Object> verify(String token, String issuer, String audience, long clockSkewSeconds)
+            throws InvalidTokenException, IOException {
+        if (token == null) {
+            throw new InvalidTokenException("Missing token");
+        }
+        String[] parts = token.trim().split("\\.");
+        if (parts.length != 3) {
+            throw new InvalidTokenException("Malformed token");
+        }
+
+        Map<String, Object> header = decode(parts[0]);
+        String algorithm = algorithm(header.get("alg"));
+        Object keyId = header.get("kid");
+        if (!(keyId instanceof String)) {
+            // Okta always names the signing key; a token without one must not fall back to any key
+            throw new InvalidTokenException("Missing signing key id");
+        }
+        PublicKey key = keys.getKey((String) keyId);
+        if (key == null) {
+            throw new InvalidTokenException("Unknown signing key " + header.get("kid"));
+        }
+        try {
+            Signature signature = Signature.getInstance(algorithm);
+            signature.initVerify(key);
+            signature.update((parts[0] + "." + parts[1]).getBytes(UTF8));
+            if (!signature.verify(Base64Url.decode(parts[2]))) {
+                throw new InvalidTokenException("Invalid signature");
+            }
+        } catch (GeneralSecurityException e) {
+            throw new InvalidTokenException("Invalid signature", e);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidTokenException("Malformed token", e);
+        }
+
+        Map<String, Object> claims = decode(parts[1]);
+        if (!issuer.equals(claims.get("iss"))) {
+            throw new InvalidTokenException("Unexpected issuer " + claims.get("iss"));
+        }
+        if (audience != null && !audienceMatches(claims.get("aud"), audience)) {
+            throw new InvalidTokenException("Unexpected audience " + claims.get("aud"));
+        }
+        long now = System.currentTimeMillis() / 1000L;
+        Number expiresAt = number(claims, "exp");
+        if (expiresAt == null || expiresAt.longValue() + clockSkewSeconds < now) {
+            throw new InvalidTokenException("Token expired");
+        }
+        Number notBefore = number(claims, "nbf");
+        if (notBefore != null && notBefore.longValue() - clockSkewSeconds > now) {
+            throw new InvalidTokenException("Token not valid yet");
+        }
+        Number issuedAt = number(claims, "iat");
+        if (issuedAt != null && issuedAt.longValue() - clockSkewSeconds > now) {
+            throw new InvalidTokenException("Token issued in the future");
+        }
+        return claims;
+    }
+
+    private static String algorithm(Object alg) throws InvalidTokenException {
+        if ("RS256".equals(alg)) {
+            return "SHA256withRSA";
+        } else if ("RS384".equals(alg)) {
+            return "SHA384withRSA";
+        } else if ("RS512".equals(alg)) {
+            return "SHA512withRSA";
+        }
+        throw new InvalidTokenException("Unsupported algorithm " + alg);
+    }
+
+    private static boolean audienceMatches(Object aud, String audience) {
+        if (aud instanceof Collection) {
+            return ((Collection<?>) aud).contains(audience);
+        }
+        return audience.equals(aud);
+    }
+
+    private static Number number(Map<String, Object> claims, String name) throws InvalidTokenException {
+        Object value = claims.get(name);
+        if (value != null && !(value instanceof Number)) {
+            throw new InvalidTokenException("Invalid " + name + " claim");
+        }
+        return (Number) value;
+    }
+
+    private static Map<String, Object> decode(String part) throws InvalidTokenException {
+        try {
+            Map<String, Object> object = JsonValues.readObject(new String(Base64Url.decode(part), UTF8));
+            if (object == null) {
+                throw new InvalidTokenException("Malformed token");
+            }
+            return object;
+        } catch (IOException e) {
+            throw new InvalidTokenException("Malformed token", e);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidTokenException("Malformed token", e);
+        } catch (ClassCastException e) {
+            throw new InvalidTokenException("Malformed token", e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.metrics;
+
+/**
+ * How much the connector records about the calls it sends.
+ *
+ * @author MuleSoft, Inc.
+ */
+public enum MetricsLevel {
+    /** Record nothing */
+    NONE,
+    /** Request, status, in-flight and byte counters only; cheap enough to leave on in production */
+    COUNTERS,
+    /** Counters plus latency histograms */
+    FULL
+}
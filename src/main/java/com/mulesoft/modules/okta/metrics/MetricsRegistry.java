@@ -0,0 +1,129 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Metrics of every operation sent by a connector. An operation is the method and
+ * path template of a call, e.g. "POST /users/{id}/lifecycle/activate", and is
+ * published over JMX as com.mulesoft.modules.okta:type=Operation,connector=...,name=...
+ *
+ * @author MuleSoft, Inc.
+ */
+public class MetricsRegistry {
+
+    private static final String DOMAIN = "com.mulesoft.modules.okta";
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+    private static final Set<String> COLLECTIONS = new HashSet<String>(Arrays.asList("users", "groups", "sessions", "apps", "factors"));
+
+    private final boolean histograms;
+    private final String connector;
+    private final MBeanServer server;
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<String, OperationMetrics>();
+
+    /**
+     * @param level COUNTERS or FULL
+     * @param host Okta host, used to name the MBeans
+     * @param jmx true to publish the metrics over JMX
+     */
+    public MetricsRegistry(MetricsLevel level, String host, boolean jmx) {
+        this.histograms = level == MetricsLevel.FULL;
+        this.connector = host + "-" + INSTANCES.incrementAndGet();
+        this.server = jmx ? ManagementFactory.getPlatformMBeanServer() : null;
+    }
+
+    /**
+     * @param method HTTP method
+     * @param path API path relative to the version, e.g. "/users/00u1/groups"
+     * @return metrics of the operation, created on first use
+     */
+    public OperationMetrics operation(String method, String path) {
+        String name = method + " " + template(path);
+        OperationMetrics metrics = operations.get(name);
+        if (metrics == null) {
+            OperationMetrics created = new OperationMetrics(name, histograms);
+            metrics = operations.putIfAbsent(name, created);
+            if (metrics == null) {
+                metrics = created;
+                register(created);
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * @param operation operation name, or null for all of them
+     * @return metrics per operation
+     */
+    public Map<String, Object> getStatus(String operation) {
+        Map<String, Object> status = new LinkedHashMap<String, Object>();
+        for (OperationMetrics metrics : new TreeMap<String, OperationMetrics>(operations).values()) {
+            if (operation == null || operation.equals(metrics.getOperation())) {
+                status.put(metrics.getOperation(), metrics.getStatus());
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Removes the MBeans of this registry.
+     */
+    public void close() {
+        if (server == null) {
+            return;
+        }
+        for (OperationMetrics metrics : operations.values()) {
+            try {
+                server.unregisterMBean(objectName(metrics));
+            } catch (JMException e) {
+                // already unregistered
+            }
+        }
+    }
+
+    /**
+     * @param path API path relative to the version
+     * @return the path with ids replaced by {id} and without query string
+     */
+    static String template(String path) {
+        int query = path.indexOf('?');
+        String[] segments = (query < 0 ? path : path.substring(0, query)).split("/");
+        StringBuilder template = new StringBuilder();
+        for (int i = 1; i < segments.length; i++) {
+            template.append('/').append(COLLECTIONS.contains(segments[i - 1]) ? "{id}" : segments[i]);
+        }
+        return template.length() == 0 ? "/" : template.toString();
+    }
+
+    private void register(OperationMetrics metrics) {
+        if (server == null) {
+            return;
+        }
+        try {
+            server.registerMBean(metrics, objectName(metrics));
+        } catch (JMException e) {
+            // the metrics remain available from getOperationMetrics
+        }
+    }
+
+    private ObjectName objectName(OperationMetrics metrics) throws JMException {
+        return new ObjectName(DOMAIN + ":type=Operation,connector=" + ObjectName.quote(connector)
+                + ",name=" + ObjectName.quote(metrics.getOperation()));
+    }
+}
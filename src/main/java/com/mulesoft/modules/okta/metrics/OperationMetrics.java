@@ -0,0 +1,171 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters, in-flight gauge and latency histogram of one Okta operation.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class OperationMetrics implements OperationMetricsMXBean {
+
+    private final String operation;
+    private final LatencyHistogram latencies;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong ioErrors = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong responseBytes = new AtomicLong();
+    private final AtomicLongArray statuses = new AtomicLongArray(600);
+
+    /**
+     * @param operation e.g. "GET /users/{id}/groups"
+     * @param histogram true to record latencies
+     */
+    public OperationMetrics(String operation, boolean histogram) {
+        this.operation = operation;
+        this.latencies = histogram ? new LatencyHistogram() : null;
+    }
+
+    /**
+     * @return start time to pass to {@link #end(int, long)}, 0 when latencies are not recorded
+     */
+    public long begin() {
+        requests.incrementAndGet();
+        inFlight.incrementAndGet();
+        return latencies != null ? System.nanoTime() : 0;
+    }
+
+    /**
+     * @param status HTTP status of the answer, 0 if the call failed before an answer
+     * @param start value returned by {@link #begin()}
+     */
+    public void end(int status, long start) {
+        inFlight.decrementAndGet();
+        if (status > 0 && status < 600) {
+            statuses.incrementAndGet(status);
+        } else {
+            ioErrors.incrementAndGet();
+        }
+        if (latencies != null) {
+            latencies.record((System.nanoTime() - start) / 1000);
+        }
+    }
+
+    public void addResponseBytes(long bytes) {
+        responseBytes.addAndGet(bytes);
+    }
+
+    @Override
+    public String getOperation() {
+        return operation;
+    }
+
+    @Override
+    public long getRequests() {
+        return requests.get();
+    }
+
+    @Override
+    public long getIoErrors() {
+        return ioErrors.get();
+    }
+
+    @Override
+    public long getHttpErrors() {
+        long errors = 0;
+        for (int status = 207; status < 600; status++) {
+            errors += statuses.get(status);
+        }
+        return errors;
+    }
+
+    @Override
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public long getResponseBytes() {
+        return responseBytes.get();
+    }
+
+    @Override
+    public Map<String, Long> getStatusCounts() {
+        Map<String, Long> counts = new TreeMap<String, Long>();
+        for (int status = 100; status < 600; status++) {
+            long count = statuses.get(status);
+            if (count > 0) {
+                counts.put(String.valueOf(status), count);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public double getLatencyMeanMillis() {
+        return latencies != null ? latencies.getMean() / 1000.0 : -1;
+    }
+
+    @Override
+    public double getLatencyP50Millis() {
+        return percentile(50);
+    }
+
+    @Override
+    public double getLatencyP90Millis() {
+        return percentile(90);
+    }
+
+    @Override
+    public double getLatencyP99Millis() {
+        return percentile(99);
+    }
+
+    @Override
+    public double getLatencyP999Millis() {
+        return percentile(99.9);
+    }
+
+    @Override
+    public double getLatencyMaxMillis() {
+        return latencies != null ? latencies.getMax() / 1000.0 : -1;
+    }
+
+    /**
+     * @return all the metrics of the operation, latencies only when they are recorded
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<String, Object>();
+        status.put("requests", getRequests());
+        status.put("ioErrors", getIoErrors());
+        status.put("httpErrors", getHttpErrors());
+        status.put("inFlight", getInFlight());
+        status.put("responseBytes", getResponseBytes());
+        status.put("statusCounts", getStatusCounts());
+        if (latencies != null) {
+            Map<String, Object> latency = new LinkedHashMap<String, Object>();
+            latency.put("count", latencies.getCount());
+            latency.put("mean", getLatencyMeanMillis());
+            latency.put("p50", getLatencyP50Millis());
+            latency.put("p90", getLatencyP90Millis());
+            latency.put("p99", getLatencyP99Millis());
+            latency.put("p999", getLatencyP999Millis());
+            latency.put("max", getLatencyMaxMillis());
+            status.put("latencyMillis", latency);
+        }
+        return status;
+    }
+
+    private double percentile(double percentile) {
+        return latencies != null ? latencies.getValueAtPercentile(percentile) / 1000.0 : -1;
+    }
+}
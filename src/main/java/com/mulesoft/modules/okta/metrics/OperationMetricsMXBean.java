@@ -0,0 +1,50 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.metrics;
+
+import java.util.Map;
+
+/**
+ * Metrics of one Okta operation, published over JMX.
+ *
+ * @author MuleSoft, Inc.
+ */
+public interface OperationMetricsMXBean {
+
+    String getOperation();
+
+    long getRequests();
+
+    /**
+     * @return calls that failed without an HTTP status
+     */
+    long getIoErrors();
+
+    /**
+     * @return calls answered with a status above 206
+     */
+    long getHttpErrors();
+
+    int getInFlight();
+
+    long getResponseBytes();
+
+    /**
+     * @return number of answers per HTTP status
+     */
+    Map<String, Long> getStatusCounts();
+
+    double getLatencyMeanMillis();
+
+    double getLatencyP50Millis();
+
+    double getLatencyP90Millis();
+
+    double getLatencyP99Millis();
+
+    double getLatencyP999Millis();
+
+    double getLatencyMaxMillis();
+}
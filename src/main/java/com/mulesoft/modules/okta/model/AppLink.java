@@ -0,0 +1,98 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.model;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * Link to an application assigned to a user.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class AppLink extends OktaObject {
+
+    private static final long serialVersionUID = 1L;
+
+    private String id;
+    private String label;
+    private String linkUrl;
+    private String logoUrl;
+    private String appName;
+    private String appInstanceId;
+    private String appAssignmentId;
+    private boolean credentialsSetup;
+    private boolean hidden;
+    private int sortOrder;
+
+    @Override
+    protected boolean readField(String name, JsonParser parser, FieldSelection fields) throws IOException {
+        if ("id".equals(name)) {
+            id = text(parser);
+        } else if ("label".equals(name)) {
+            label = text(parser);
+        } else if ("linkUrl".equals(name)) {
+            linkUrl = text(parser);
+        } else if ("logoUrl".equals(name)) {
+            logoUrl = text(parser);
+        } else if ("appName".equals(name)) {
+            appName = text(parser);
+        } else if ("appInstanceId".equals(name)) {
+            appInstanceId = text(parser);
+        } else if ("appAssignmentId".equals(name)) {
+            appAssignmentId = text(parser);
+        } else if ("credentialsSetup".equals(name)) {
+            credentialsSetup = parser.getValueAsBoolean();
+        } else if ("hidden".equals(name)) {
+            hidden = parser.getValueAsBoolean();
+        } else if ("sortOrder".equals(name)) {
+            sortOrder = parser.getValueAsInt();
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getLinkUrl() {
+        return linkUrl;
+    }
+
+    public String getLogoUrl() {
+        return logoUrl;
+    }
+
+    public String getAppName() {
+        return appName;
+    }
+
+    public String getAppInstanceId() {
+        return appInstanceId;
+    }
+
+    public String getAppAssignmentId() {
+        return appAssignmentId;
+    }
+
+    public boolean isCredentialsSetup() {
+        return credentialsSetup;
+    }
+
+    public boolean isHidden() {
+        return hidden;
+    }
+
+    public int getSortOrder() {
+        return sortOrder;
+    }
+}
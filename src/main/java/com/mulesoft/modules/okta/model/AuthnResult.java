@@ -0,0 +1,91 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.model;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Result of a primary authentication.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class AuthnResult extends OktaObject {
+
+    private static final long serialVersionUID = 1L;
+
+    private String status;
+    private String expiresAt;
+    private String relayState;
+    private String sessionToken;
+    private String stateToken;
+    private String factorResult;
+    private User user;
+
+    @Override
+    protected boolean readField(String name, JsonParser parser, FieldSelection fields) throws IOException {
+        if ("status".equals(name)) {
+            status = text(parser);
+        } else if ("expiresAt".equals(name)) {
+            expiresAt = text(parser);
+        } else if ("relayState".equals(name)) {
+            relayState = text(parser);
+        } else if ("sessionToken".equals(name)) {
+            sessionToken = text(parser);
+        } else if ("stateToken".equals(name)) {
+            stateToken = text(parser);
+        } else if ("factorResult".equals(name)) {
+            factorResult = text(parser);
+        } else if ("_embedded".equals(name)) {
+            FieldSelection embedded = fields.nested(name);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String resource = parser.getCurrentName();
+                parser.nextToken();
+                if ("user".equals(resource) && embedded.includes(resource)) {
+                    user = new User();
+                    user.read(parser, embedded.nested(resource));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getExpiresAt() {
+        return expiresAt;
+    }
+
+    public String getRelayState() {
+        return relayState;
+    }
+
+    public String getSessionToken() {
+        return sessionToken;
+    }
+
+    public String getStateToken() {
+        return stateToken;
+    }
+
+    public String getFactorResult() {
+        return factorResult;
+    }
+
+    /**
+     * @return the authenticated user, embedded in the response
+     */
+    public User getUser() {
+        return user;
+    }
+}
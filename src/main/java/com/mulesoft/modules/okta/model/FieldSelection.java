@@ -0,0 +1,77 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.model;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Fields requested by the caller, e.g. "id,status,profile.login". Fields that are
+ * not selected are skipped while parsing and never materialized.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class FieldSelection implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Selection that keeps every field */
+    public static final FieldSelection ALL = new FieldSelection(null, null);
+
+    private final Set<String> fields;
+    private final String prefix;
+
+    private FieldSelection(Set<String> fields, String prefix) {
+        this.fields = fields;
+        this.prefix = prefix;
+    }
+
+    /**
+     * @param fields comma-separated field paths, null or empty for all fields
+     * @return the selection
+     */
+    public static FieldSelection parse(String fields) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return ALL;
+        }
+        Set<String> selected = new HashSet<String>();
+        for (String field : fields.split(",")) {
+            String path = field.trim();
+            if (!path.isEmpty()) {
+                selected.add(path);
+            }
+        }
+        return new FieldSelection(selected, "");
+    }
+
+    /**
+     * @param name field of the current object
+     * @return true if the field, one of its children or one of its parents is selected
+     */
+    public boolean includes(String name) {
+        if (fields == null) {
+            return true;
+        }
+        String path = prefix + name;
+        for (String field : fields) {
+            if (field.equals(path) || field.startsWith(path + ".") || path.startsWith(field + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param name field holding a nested object
+     * @return the selection that applies inside the nested object
+     */
+    public FieldSelection nested(String name) {
+        if (fields == null || fields.contains(prefix + name)) {
+            return ALL;
+        }
+        return new FieldSelection(fields, prefix + name + ".");
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.model;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Okta group.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class Group extends OktaObject {
+
+    private static final long serialVersionUID = 1L;
+
+    private String id;
+    private String type;
+    private String name;
+    private String description;
+
+    @Override
+    protected boolean readField(String field, JsonParser parser, FieldSelection fields) throws IOException {
+        if ("id".equals(field)) {
+            id = text(parser);
+        } else if ("type".equals(field)) {
+            type = text(parser);
+        } else if ("profile".equals(field)) {
+            FieldSelection profileFields = fields.nested(field);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String attribute = parser.getCurrentName();
+                parser.nextToken();
+                if ("name".equals(attribute) && profileFields.includes(attribute)) {
+                    name = text(parser);
+                } else if ("description".equals(attribute) && profileFields.includes(attribute)) {
+                    description = text(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
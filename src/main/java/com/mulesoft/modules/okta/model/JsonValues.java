@@ -0,0 +1,146 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.model;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads untyped JSON values into maps, lists and scalars, and writes them back.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class JsonValues {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    /**
+     * @param json JSON object
+     * @return the object as a map
+     * @throws IOException if the JSON cannot be read
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> readObject(String json) throws IOException {
+        JsonParser parser = FACTORY.createParser(json);
+        try {
+            parser.nextToken();
+            return (Map<String, Object>) read(parser);
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * Reads a top level attribute of a JSON object, skipping the rest of the object.
+     *
+     * @param json JSON object
+     * @param field top level attribute
+     * @return the text of the attribute or null if it is absent
+     * @throws IOException if the JSON cannot be read
+     */
+    public static String readField(String json, String field) throws IOException {
+        JsonParser parser = FACTORY.createParser(json);
+        try {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                if (field.equals(name)) {
+                    return parser.getCurrentToken() == JsonToken.VALUE_NULL ? null : parser.getText();
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * @param value map, collection, array or scalar
+     * @return the value serialized as JSON
+     * @throws IOException if the value cannot be written
+     */
+    public static String write(Object value) throws IOException {
+        StringWriter json = new StringWriter();
+        JsonGenerator generator = FACTORY.createGenerator(json);
+        write(generator, value);
+        generator.close();
+        return json.toString();
+    }
+
+    private static void write(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof Map) {
+            generator.writeStartObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                generator.writeFieldName(String.valueOf(entry.getKey()));
+                write(generator, entry.getValue());
+            }
+            generator.writeEndObject();
+        } else if (value instanceof Collection || value instanceof Object[]) {
+            generator.writeStartArray();
+            for (Object element : value instanceof Collection ? (Collection<?>) value : Arrays.asList((Object[]) value)) {
+                write(generator, element);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof Number) {
+            generator.writeNumber(value.toString());
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    /**
+     * @param parser parser positioned on the value
+     * @return the value
+     * @throws IOException if the JSON cannot be read
+     */
+    public static Object read(JsonParser parser) throws IOException {
+        switch (parser.getCurrentToken()) {
+            case START_OBJECT:
+                Map<String, Object> object = new LinkedHashMap<String, Object>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    parser.nextToken();
+                    object.put(name, read(parser));
+                }
+                return object;
+            case START_ARRAY:
+                List<Object> array = new ArrayList<Object>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    array.add(read(parser));
+                }
+                return array;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+}
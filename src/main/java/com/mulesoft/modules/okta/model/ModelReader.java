@@ -0,0 +1,80 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Parses typed resources straight from a response stream.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class ModelReader {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    /**
+     * @param stream JSON object, closed when done
+     * @param type resource type
+     * @param fields fields to materialize
+     * @return the resource
+     * @throws IOException if the stream cannot be read
+     */
+    public static <T extends OktaObject> T readObject(InputStream stream, Class<T> type, FieldSelection fields) throws IOException {
+        JsonParser parser = FACTORY.createParser(stream);
+        try {
+            parser.nextToken();
+            T object = newInstance(type);
+            object.read(parser, fields);
+            return object;
+        } finally {
+            parser.close();
+            stream.close();
+        }
+    }
+
+    /**
+     * @param stream JSON array, closed when done
+     * @param type resource type of the elements
+     * @param fields fields to materialize
+     * @return the resources
+     * @throws IOException if the stream cannot be read
+     */
+    public static <T extends OktaObject> List<T> readList(InputStream stream, Class<T> type, FieldSelection fields) throws IOException {
+        JsonParser parser = FACTORY.createParser(stream);
+        try {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array but got " + parser.getCurrentToken());
+            }
+            List<T> objects = new ArrayList<T>();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                T object = newInstance(type);
+                object.read(parser, fields);
+                objects.add(object);
+            }
+            return objects;
+        } finally {
+            parser.close();
+            stream.close();
+        }
+    }
+
+    private static <T> T newInstance(Class<T> type) throws IOException {
+        try {
+            return type.newInstance();
+        } catch (InstantiationException e) {
+            throw new IOException(e);
+        } catch (IllegalAccessException e) {
+            throw new IOException(e);
+        }
+    }
+}
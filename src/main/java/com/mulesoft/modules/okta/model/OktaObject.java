@@ -0,0 +1,55 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.model;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Base class of the typed Okta resources. Objects are populated field by field
+ * from a streaming parser, skipping the fields that are not selected.
+ *
+ * @author MuleSoft, Inc.
+ */
+public abstract class OktaObject implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Reads the object the parser is positioned on.
+     *
+     * @param parser parser positioned on START_OBJECT
+     * @param fields fields to materialize
+     * @throws IOException if the JSON cannot be read
+     */
+    public void read(JsonParser parser, FieldSelection fields) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object but got " + parser.getCurrentToken());
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            if (!fields.includes(name) || !readField(name, parser, fields)) {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * @param name field name
+     * @param parser parser positioned on the value of the field
+     * @param fields fields to materialize
+     * @return false if the field is unknown and has to be skipped
+     * @throws IOException if the JSON cannot be read
+     */
+    protected abstract boolean readField(String name, JsonParser parser, FieldSelection fields) throws IOException;
+
+    protected static String text(JsonParser parser) throws IOException {
+        return parser.getCurrentToken() == JsonToken.VALUE_NULL ? null : parser.getText();
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.model;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * Profile of a user. The base attributes are read into fields; other attributes
+ * are kept as raw JSON and only turned into a map when asked for.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class Profile extends OktaObject {
+
+    private static final long serialVersionUID = 1L;
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private String login;
+    private String email;
+    private String firstName;
+    private String lastName;
+    private String mobilePhone;
+    private String secondEmail;
+    private String additionalAttributesJson;
+    private transient Map<String, Object> additionalAttributes;
+
+    private transient StringWriter pending;
+    private transient JsonGenerator pendingGenerator;
+
+    @Override
+    public void read(JsonParser parser, FieldSelection fields) throws IOException {
+        super.read(parser, fields);
+        if (pendingGenerator != null) {
+            pendingGenerator.writeEndObject();
+            pendingGenerator.close();
+            additionalAttributesJson = pending.toString();
+            pendingGenerator = null;
+            pending = null;
+        }
+    }
+
+    @Override
+    protected boolean readField(String name, JsonParser parser, FieldSelection fields) throws IOException {
+        if ("login".equals(name)) {
+            login = text(parser);
+        } else if ("email".equals(name)) {
+            email = text(parser);
+        } else if ("firstName".equals(name)) {
+            firstName = text(parser);
+        } else if ("lastName".equals(name)) {
+            lastName = text(parser);
+        } else if ("mobilePhone".equals(name)) {
+            mobilePhone = text(parser);
+        } else if ("secondEmail".equals(name)) {
+            secondEmail = text(parser);
+        } else {
+            if (pendingGenerator == null) {
+                pending = new StringWriter();
+                pendingGenerator = FACTORY.createGenerator(pending);
+                pendingGenerator.writeStartObject();
+            }
+            pendingGenerator.writeFieldName(name);
+            pendingGenerator.copyCurrentStructure(parser);
+        }
+        return true;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getMobilePhone() {
+        return mobilePhone;
+    }
+
+    public String getSecondEmail() {
+        return secondEmail;
+    }
+
+    /**
+     * @return the custom attributes of the profile as raw JSON, or null if there are none
+     */
+    public String getAdditionalAttributesJson() {
+        return additionalAttributesJson;
+    }
+
+    /**
+     * @return the custom attributes of the profile, parsed on first access
+     * @throws IOException if the attributes cannot be parsed
+     */
+    public synchronized Map<String, Object> getAdditionalAttributes() throws IOException {
+        if (additionalAttributes == null) {
+            additionalAttributes = additionalAttributesJson == null
+                    ? Collections.<String, Object>emptyMap() : JsonValues.readObject(additionalAttributesJson);
+        }
+        return additionalAttributes;
+    }
+
+    /**
+     * @param name custom attribute
+     * @return value of the attribute or null
+     * @throws IOException if the attributes cannot be parsed
+     */
+    public Object getAttribute(String name) throws IOException {
+        return getAdditionalAttributes().get(name);
+    }
+}
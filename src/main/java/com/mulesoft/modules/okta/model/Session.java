@@ -0,0 +1,98 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.model;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * Okta session.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class Session extends OktaObject {
+
+    private static final long serialVersionUID = 1L;
+
+    private String id;
+    private String userId;
+    private String login;
+    private String status;
+    private String createdAt;
+    private String expiresAt;
+    private String lastPasswordVerification;
+    private boolean mfaActive;
+    private String cookieToken;
+    private String cookieTokenUrl;
+
+    @Override
+    protected boolean readField(String name, JsonParser parser, FieldSelection fields) throws IOException {
+        if ("id".equals(name)) {
+            id = text(parser);
+        } else if ("userId".equals(name)) {
+            userId = text(parser);
+        } else if ("login".equals(name)) {
+            login = text(parser);
+        } else if ("status".equals(name)) {
+            status = text(parser);
+        } else if ("createdAt".equals(name)) {
+            createdAt = text(parser);
+        } else if ("expiresAt".equals(name)) {
+            expiresAt = text(parser);
+        } else if ("lastPasswordVerification".equals(name)) {
+            lastPasswordVerification = text(parser);
+        } else if ("mfaActive".equals(name)) {
+            mfaActive = parser.getValueAsBoolean();
+        } else if ("cookieToken".equals(name)) {
+            cookieToken = text(parser);
+        } else if ("cookieTokenUrl".equals(name)) {
+            cookieTokenUrl = text(parser);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getExpiresAt() {
+        return expiresAt;
+    }
+
+    public String getLastPasswordVerification() {
+        return lastPasswordVerification;
+    }
+
+    public boolean isMfaActive() {
+        return mfaActive;
+    }
+
+    public String getCookieToken() {
+        return cookieToken;
+    }
+
+    public String getCookieTokenUrl() {
+        return cookieTokenUrl;
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.model;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * Okta user.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class User extends OktaObject {
+
+    private static final long serialVersionUID = 1L;
+
+    private String id;
+    private String status;
+    private String transitioningToStatus;
+    private String created;
+    private String activated;
+    private String statusChanged;
+    private String lastLogin;
+    private String lastUpdated;
+    private String passwordChanged;
+    private Profile profile;
+
+    @Override
+    protected boolean readField(String name, JsonParser parser, FieldSelection fields) throws IOException {
+        if ("id".equals(name)) {
+            id = text(parser);
+        } else if ("status".equals(name)) {
+            status = text(parser);
+        } else if ("transitioningToStatus".equals(name)) {
+            transitioningToStatus = text(parser);
+        } else if ("created".equals(name)) {
+            created = text(parser);
+        } else if ("activated".equals(name)) {
+            activated = text(parser);
+        } else if ("statusChanged".equals(name)) {
+            statusChanged = text(parser);
+        } else if ("lastLogin".equals(name)) {
+            lastLogin = text(parser);
+        } else if ("lastUpdated".equals(name)) {
+            lastUpdated = text(parser);
+        } else if ("passwordChanged".equals(name)) {
+            passwordChanged = text(parser);
+        } else if ("profile".equals(name)) {
+            profile = new Profile();
+            profile.read(parser, fields.nested(name));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getTransitioningToStatus() {
+        return transitioningToStatus;
+    }
+
+    public String getCreated() {
+        return created;
+    }
+
+    public String getActivated() {
+        return activated;
+    }
+
+    public String getStatusChanged() {
+        return statusChanged;
+    }
+
+    public String getLastLogin() {
+        return lastLogin;
+    }
+
+    public String getLastUpdated() {
+        return lastUpdated;
+    }
+
+    public String getPasswordChanged() {
+        return passwordChanged;
+    }
+
+    public Profile getProfile() {
+        return profile;
+    }
+}
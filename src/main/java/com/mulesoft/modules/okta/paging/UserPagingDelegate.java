@@ -0,0 +1,128 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.paging;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.mule.api.MuleException;
+import org.mule.streaming.ProviderAwarePagingDelegate;
+
+import com.mulesoft.modules.okta.OktaConnector;
+import com.mulesoft.modules.okta.client.JsonArrayReader;
+import com.mulesoft.modules.okta.client.OktaClient;
+import com.mulesoft.modules.okta.client.OktaResponse;
+
+/**
+ * Pages through /users by following the rel="next" Link header returned by Okta.
+ * Only the current page (and the next one, when prefetching) is held in memory.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class UserPagingDelegate extends ProviderAwarePagingDelegate<String, OktaConnector> {
+    private final OktaClient client;
+    private String nextUrl;
+    private final ExecutorService prefetcher;
+    private Future<Page> pending;
+
+    /**
+     * @param client client of the org the users are listed from
+     * @param firstUrl URL of the first page
+     * @param prefetch fetch the next page in the background while the current one is consumed
+     */
+    public UserPagingDelegate(OktaClient client, String firstUrl, boolean prefetch) {
+        this.client = client;
+        this.nextUrl = firstUrl;
+        this.prefetcher = prefetch ? Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "okta-user-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }) : null;
+    }
+
+    @Override
+    public List<String> getPage(OktaConnector connector) throws Exception {
+        Page page;
+        if (pending != null) {
+            page = await(pending);
+            pending = null;
+        } else if (nextUrl != null) {
+            page = fetch(client, nextUrl);
+        } else {
+            return Collections.emptyList();
+        }
+
+        nextUrl = page.next;
+        if (prefetcher != null && nextUrl != null) {
+            final String url = nextUrl;
+            pending = prefetcher.submit(new Callable<Page>() {
+                @Override
+                public Page call() throws Exception {
+                    return fetch(client, url);
+                }
+            });
+        }
+        return page.users;
+    }
+
+    /**
+     * @return URL of the page after the one last returned, null once the last page has been returned
+     */
+    public String getNextUrl() {
+        return nextUrl;
+    }
+
+    @Override
+    public int getTotalResults(OktaConnector connector) throws Exception {
+        // Okta does not report the size of the result set
+        return -1;
+    }
+
+    @Override
+    public void close() throws MuleException {
+        nextUrl = null;
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+        if (prefetcher != null) {
+            prefetcher.shutdownNow();
+        }
+    }
+
+    private static Page fetch(OktaClient client, String url) throws IOException {
+        OktaResponse response = client.execute("GET", url, null);
+        String next = response.getLink("next");
+        return new Page(JsonArrayReader.readElements(response.getBody()), next);
+    }
+
+    private static Page await(Future<Page> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private static class Page {
+        private final List<String> users;
+        private final String next;
+
+        private Page(List<String> users, String next) {
+            this.users = users;
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.ratelimit;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Token bucket of one endpoint family, refilled from the X-Rate-Limit-* headers
+ * returned by Okta. When smoothing is enabled the remaining budget is spread
+ * evenly until the reset time instead of being spent in a burst.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class RateLimitBucket {
+
+    private final boolean smoothing;
+
+    private long limit = -1;
+    private long remaining = -1;
+    private long resetAt;
+    private long nextSlot;
+
+    private long requests;
+    private long throttled;
+    private long rejected;
+    private long waitedMillis;
+
+    public RateLimitBucket(boolean smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    /**
+     * Takes a token from the bucket, unless the caller would have to wait longer than it may.
+     * A rejected call takes nothing, so it does not delay the calls after it.
+     *
+     * @param now current time in milliseconds
+     * @param maxWaitMillis longest the caller may wait
+     * @return how long the caller has to wait before sending the request, in milliseconds; more
+     *         than maxWaitMillis if the call was rejected
+     */
+    public synchronized long reserve(long now, long maxWaitMillis) {
+        if (limit < 0) {
+            // nothing known about this family yet
+            requests++;
+            return 0;
+        }
+        long available = remaining;
+        long next = nextSlot;
+        if (now >= resetAt) {
+            // the window has been reset, the next response will tell the new budget
+            available = limit;
+            next = now;
+        }
+
+        long slot;
+        if (available > 0) {
+            long interval = smoothing ? (resetAt - now) / available : 0;
+            slot = Math.max(now, next);
+            next = slot + Math.max(interval, 0);
+        } else {
+            slot = Math.max(resetAt, next);
+            next = slot;
+        }
+
+        long wait = slot - now;
+        if (wait > maxWaitMillis) {
+            rejected++;
+            return wait;
+        }
+        requests++;
+        remaining = available - 1;
+        nextSlot = next;
+        if (wait > 0) {
+            throttled++;
+            waitedMillis += wait;
+        }
+        return wait;
+    }
+
+    /**
+     * Updates the bucket from the rate limit headers of a response.
+     *
+     * @param limit value of X-Rate-Limit-Limit
+     * @param remaining value of X-Rate-Limit-Remaining
+     * @param resetEpochSeconds value of X-Rate-Limit-Reset
+     */
+    public synchronized void update(long limit, long remaining, long resetEpochSeconds) {
+        this.limit = limit;
+        this.remaining = remaining;
+        this.resetAt = resetEpochSeconds * 1000L;
+    }
+
+    /**
+     * @param now current time in milliseconds
+     * @return milliseconds until the current window is reset
+     */
+    public synchronized long millisUntilReset(long now) {
+        return Math.max(resetAt - now, 0);
+    }
+
+    /**
+     * @return limit, remaining budget, reset time and throttling counters of the bucket
+     */
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<String, Object>();
+        status.put("limit", limit);
+        status.put("remaining", Math.max(remaining, -1));
+        status.put("reset", resetAt / 1000L);
+        status.put("requests", requests);
+        status.put("throttled", throttled);
+        status.put("rejected", rejected);
+        status.put("waitedMillis", waitedMillis);
+        return status;
+    }
+}
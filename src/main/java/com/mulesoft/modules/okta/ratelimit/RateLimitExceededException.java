@@ -0,0 +1,42 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.ratelimit;
+
+import java.io.IOException;
+
+/**
+ * Thrown without calling Okta when the rate limit budget of an endpoint family
+ * would make the call wait longer than the configured maximum wait. Retrying
+ * right away would be rejected again, so the call is not retried.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class RateLimitExceededException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String family;
+    private final long waitMillis;
+
+    public RateLimitExceededException(String family, long waitMillis) {
+        super("Rate limit of " + family + " exhausted, next window in " + waitMillis + " ms");
+        this.family = family;
+        this.waitMillis = waitMillis;
+    }
+
+    /**
+     * @return the endpoint family whose budget is exhausted, e.g. "users"
+     */
+    public String getFamily() {
+        return family;
+    }
+
+    /**
+     * @return how long the call would have had to wait, in milliseconds
+     */
+    public long getWaitMillis() {
+        return waitMillis;
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.ratelimit;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Paces outgoing calls per endpoint family (users, sessions, authn...) according
+ * to the budget Okta reports in the X-Rate-Limit-* response headers.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class RateLimitScheduler {
+
+    private final boolean smoothing;
+    private final long maxWaitMillis;
+    private final ConcurrentMap<String, RateLimitBucket> buckets = new ConcurrentHashMap<String, RateLimitBucket>();
+
+    /**
+     * @param smoothing spread the remaining budget evenly until the reset time
+     * @param maxWaitMillis longest a call may be queued before it fails
+     */
+    public RateLimitScheduler(boolean smoothing, long maxWaitMillis) {
+        this.smoothing = smoothing;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * @param path API path relative to the version, e.g. "/users/123/groups"
+     * @return the endpoint family that shares a rate limit, e.g. "users"
+     */
+    public static String family(String path) {
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = start;
+        while (end < path.length() && path.charAt(end) != '/' && path.charAt(end) != '?') {
+            end++;
+        }
+        return path.substring(start, end);
+    }
+
+    /**
+     * Blocks until the family has budget for one more call.
+     *
+     * @param family endpoint family
+     * @throws RateLimitExceededException if the call would have to wait longer than the maximum wait
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    public void acquire(String family) throws IOException {
+        sleep(family, reserve(family));
+    }
+
+    /**
+     * Takes budget for one call without blocking.
+     *
+     * @param family endpoint family
+     * @return how long the call has to be delayed, in milliseconds
+     * @throws RateLimitExceededException if the call would have to wait longer than the maximum wait
+     */
+    public long reserve(String family) throws RateLimitExceededException {
+        return checkWait(family, bucket(family).reserve(System.currentTimeMillis(), maxWaitMillis));
+    }
+
+    /**
+     * @param family endpoint family
+     * @return how long to wait for the window of the family to be reset after a 429, in milliseconds
+     * @throws RateLimitExceededException if the reset is further away than the maximum wait
+     */
+    public long resetDelay(String family) throws RateLimitExceededException {
+        return checkWait(family, Math.max(bucket(family).millisUntilReset(System.currentTimeMillis()), 1000L));
+    }
+
+    /**
+     * Waits for the window of a family to be reset after Okta answered 429.
+     *
+     * @param family endpoint family
+     * @throws RateLimitExceededException if the reset is further away than the maximum wait
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    public void awaitReset(String family) throws IOException {
+        sleep(family, resetDelay(family));
+    }
+
+    /**
+     * Records the rate limit headers of a response, missing headers are ignored.
+     */
+    public void update(String family, String limit, String remaining, String reset) {
+        if (limit == null || remaining == null || reset == null) {
+            return;
+        }
+        try {
+            bucket(family).update(Long.parseLong(limit.trim()), Long.parseLong(remaining.trim()), Long.parseLong(reset.trim()));
+        } catch (NumberFormatException e) {
+            // malformed headers, keep the previous budget
+        }
+    }
+
+    /**
+     * @return status of every family seen so far
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<String, Object>();
+        for (Map.Entry<String, RateLimitBucket> bucket : buckets.entrySet()) {
+            status.put(bucket.getKey(), bucket.getValue().getStatus());
+        }
+        return status;
+    }
+
+    private RateLimitBucket bucket(String family) {
+        RateLimitBucket bucket = buckets.get(family);
+        if (bucket == null) {
+            RateLimitBucket created = new RateLimitBucket(smoothing);
+            bucket = buckets.putIfAbsent(family, created);
+            if (bucket == null) {
+                bucket = created;
+            }
+        }
+        return bucket;
+    }
+
+    private long checkWait(String family, long millis) throws RateLimitExceededException {
+        if (millis > maxWaitMillis) {
+            throw new RateLimitExceededException(family, millis);
+        }
+        return millis;
+    }
+
+    private void sleep(String family, long millis) throws IOException {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the " + family + " rate limit");
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.replica;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.mulesoft.modules.okta.client.JsonArrayReader;
+import com.mulesoft.modules.okta.client.OktaClient;
+import com.mulesoft.modules.okta.client.OktaResponse;
+import com.mulesoft.modules.okta.model.JsonValues;
+
+/**
+ * Replica of the user to group membership of the org. It is bootstrapped by
+ * streaming /users, /groups and the members of every group, then kept current by
+ * applying the membership and user lifecycle events of the System Log, and rebuilt
+ * from scratch periodically to pick up anything the events do not carry. A group
+ * first seen in an event is read from Okta, so the replica answers with complete
+ * group objects.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class GroupReplica {
+
+    private static final String MEMBERSHIP_EVENTS =
+            "eventType eq \"group.user_membership.add\" or eventType eq \"group.user_membership.remove\""
+            + " or eventType eq \"user.lifecycle.create\" or eventType eq \"user.lifecycle.deactivate\""
+            + " or eventType eq \"user.lifecycle.delete.initiated\"";
+
+    private final OktaClient client;
+    private final long rebuildIntervalMillis;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile MembershipIndex index;
+    private volatile long lastSync;
+    private volatile long lastRebuild;
+    private volatile String lastError;
+    private String eventsUrl;
+    private final AtomicLong appliedEvents = new AtomicLong();
+
+    /**
+     * @param client client used to read the org
+     * @param syncIntervalSeconds time between two applications of the membership events
+     * @param rebuildIntervalSeconds time between two full rebuilds
+     */
+    public GroupReplica(OktaClient client, long syncIntervalSeconds, long rebuildIntervalSeconds) {
+        this.client = client;
+        this.rebuildIntervalMillis = rebuildIntervalSeconds * 1000L;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "okta-group-replica");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (index == null || System.currentTimeMillis() - lastRebuild >= rebuildIntervalMillis) {
+                        rebuild();
+                    } else {
+                        applyEvents();
+                    }
+                    lastError = null;
+                } catch (Exception e) {
+                    lastError = e.getMessage();
+                }
+            }
+        }, 0, syncIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return the current index, or null while the replica is being bootstrapped
+     */
+    public MembershipIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * @return readiness, staleness, size and memory footprint of the replica
+     */
+    public Map<String, Object> getStatus() {
+        MembershipIndex current = index;
+        Map<String, Object> status = new LinkedHashMap<String, Object>();
+        status.put("ready", current != null);
+        status.put("stalenessMillis", current != null ? System.currentTimeMillis() - lastSync : -1);
+        status.put("lastRebuild", lastRebuild);
+        status.put("users", current != null ? current.getUserCount() : 0);
+        status.put("groups", current != null ? current.getGroupCount() : 0);
+        status.put("estimatedBytes", current != null ? current.estimateMemory() : 0);
+        status.put("appliedEvents", appliedEvents.get());
+        status.put("lastError", lastError);
+        return status;
+    }
+
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void rebuild() throws IOException {
+        long start = System.currentTimeMillis();
+        final MembershipIndex rebuilt = new MembershipIndex();
+
+        Map<String, Object> params = new LinkedHashMap<String, Object>();
+        params.put("limit", 200);
+        forEach(client.url("/users", params), new ElementHandler() {
+            @Override
+            public void handle(String user) throws IOException {
+                Map<String, Object> fields = JsonValues.readObject(user);
+                Object profile = fields.get("profile");
+                rebuilt.addUser((String) fields.get("id"),
+                        profile instanceof Map ? (String) ((Map<?, ?>) profile).get("login") : null);
+            }
+        });
+        forEach(client.url("/groups", params), new ElementHandler() {
+            @Override
+            public void handle(String group) throws IOException {
+                rebuilt.addGroup(JsonValues.readField(group, "id"), group);
+            }
+        });
+        Map<String, Object> memberParams = new LinkedHashMap<String, Object>();
+        memberParams.put("limit", 1000);
+        for (int i = 0; i < rebuilt.getGroupCount(); i++) {
+            final String groupId = rebuilt.getGroupId(i);
+            forEach(client.url("/groups/" + OktaClient.segment(groupId) + "/users", memberParams), new ElementHandler() {
+                @Override
+                public void handle(String user) throws IOException {
+                    rebuilt.addMember(JsonValues.readField(user, "id"), groupId);
+                }
+            });
+        }
+
+        Map<String, Object> eventParams = new LinkedHashMap<String, Object>();
+        eventParams.put("since", timestamp(start));
+        eventParams.put("filter", MEMBERSHIP_EVENTS);
+        eventParams.put("limit", 1000);
+        eventParams.put("sortOrder", "ASCENDING");
+        synchronized (this) {
+            eventsUrl = client.url("/logs", eventParams);
+        }
+        index = rebuilt;
+        lastRebuild = start;
+        lastSync = start;
+        applyEvents();
+    }
+
+    private synchronized void applyEvents() throws IOException {
+        final MembershipIndex current = index;
+        long start = System.currentTimeMillis();
+        while (eventsUrl != null) {
+            OktaResponse response = client.execute("GET", eventsUrl, null);
+            String next = response.getLink("next");
+            List<String> events = JsonArrayReader.readElements(response.getBody());
+            for (String event : events) {
+                apply(current, JsonValues.readObject(event));
+            }
+            if (next != null) {
+                eventsUrl = next;
+            }
+            if (events.isEmpty() || next == null) {
+                break;
+            }
+        }
+        lastSync = start;
+    }
+
+    private void apply(MembershipIndex current, Map<String, Object> event) {
+        Object targets = event.get("target");
+        if (!(targets instanceof List)) {
+            return;
+        }
+        String userId = null;
+        String login = null;
+        String groupId = null;
+        for (Object target : (List<?>) targets) {
+            Map<?, ?> resource = (Map<?, ?>) target;
+            if ("User".equals(resource.get("type"))) {
+                userId = (String) resource.get("id");
+                login = (String) resource.get("alternateId");
+            } else if ("UserGroup".equals(resource.get("type"))) {
+                groupId = (String) resource.get("id");
+            }
+        }
+        if (userId == null) {
+            return;
+        }
+        String eventType = (String) event.get("eventType");
+        if ("user.lifecycle.create".equals(eventType)) {
+            current.addUser(userId, login);
+        } else if ("user.lifecycle.deactivate".equals(eventType) || "user.lifecycle.delete.initiated".equals(eventType)) {
+            current.removeUser(userId, login);
+        } else if (groupId == null) {
+            return;
+        } else if ("group.user_membership.add".equals(eventType)) {
+            if (!current.hasGroupJson(groupId)) {
+                internGroup(current, groupId);
+            }
+            current.addMember(userId, groupId);
+        } else {
+            current.removeMember(userId, groupId);
+        }
+        appliedEvents.incrementAndGet();
+    }
+
+    private void internGroup(MembershipIndex current, String groupId) {
+        try {
+            current.addGroup(groupId, client.execute("GET", client.url("/groups/" + OktaClient.segment(groupId), null), null).asString());
+        } catch (IOException e) {
+            // the groups of its members are read from Okta until the group is read by the next rebuild
+        }
+    }
+
+    private void forEach(String url, ElementHandler handler) throws IOException {
+        while (url != null) {
+            OktaResponse response = client.execute("GET", url, null);
+            url = response.getLink("next");
+            List<String> elements = JsonArrayReader.readElements(response.getBody());
+            for (String element : elements) {
+                handler.handle(element);
+            }
+            if (elements.isEmpty()) {
+                break;
+            }
+        }
+    }
+
+    private static String timestamp(long millis) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(millis));
+    }
+
+    private interface ElementHandler {
+        void handle(String element) throws IOException;
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.replica;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-memory user to group membership. Group ids are interned to ints and each
+ * user holds a sorted int array of its groups, so lookups are a hash lookup and
+ * a binary search and do not allocate. Updates copy the array of the user they
+ * touch; readers never lock.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class MembershipIndex {
+
+    private static final int[] NO_GROUPS = new int[0];
+
+    private final ConcurrentMap<String, Integer> groupIndexes = new ConcurrentHashMap<String, Integer>();
+    private volatile String[] groupIds = new String[64];
+    private volatile String[] groupJson = new String[64];
+    private int groupCount;
+
+    private final ConcurrentMap<String, int[]> userGroups = new ConcurrentHashMap<String, int[]>();
+    private final ConcurrentMap<String, String> logins = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Registers a user, with no groups until memberships are added.
+     *
+     * @param id user id
+     * @param login user login, may be null
+     */
+    public void addUser(String id, String login) {
+        if (userGroups.putIfAbsent(id, NO_GROUPS) == null && login != null) {
+            logins.put(login, id);
+        }
+    }
+
+    /**
+     * @param id group id
+     * @param json group object returned for getUserGroups, may be null to keep the current one
+     * @return interned index of the group
+     */
+    public synchronized int addGroup(String id, String json) {
+        Integer index = groupIndexes.get(id);
+        if (index == null) {
+            if (groupCount == groupIds.length) {
+                groupIds = Arrays.copyOf(groupIds, groupCount * 2);
+                groupJson = Arrays.copyOf(groupJson, groupCount * 2);
+            }
+            index = groupCount++;
+            groupIds[index] = id;
+            groupIndexes.put(id, index);
+        }
+        if (json != null) {
+            groupJson[index] = json;
+        }
+        return index;
+    }
+
+    /**
+     * Forgets a deactivated or deleted user, so its groups are read from Okta again.
+     *
+     * @param id user id
+     * @param login user login, may be null
+     */
+    public synchronized void removeUser(String id, String login) {
+        userGroups.remove(id);
+        if (login != null) {
+            logins.remove(login, id);
+        }
+    }
+
+    /**
+     * @param id group id
+     * @return true if the group object of the group is known, not only its id
+     */
+    public boolean hasGroupJson(String id) {
+        Integer index = groupIndexes.get(id);
+        return index != null && groupJson[index] != null;
+    }
+
+    public synchronized void addMember(String userId, String groupId) {
+        int group = addGroup(groupId, null);
+        int[] groups = userGroups.get(userId);
+        groups = groups == null ? NO_GROUPS : groups;
+        int position = Arrays.binarySearch(groups, group);
+        if (position >= 0) {
+            return;
+        }
+        position = -position - 1;
+        int[] updated = new int[groups.length + 1];
+        System.arraycopy(groups, 0, updated, 0, position);
+        updated[position] = group;
+        System.arraycopy(groups, position, updated, position + 1, groups.length - position);
+        userGroups.put(userId, updated);
+    }
+
+    public synchronized void removeMember(String userId, String groupId) {
+        Integer group = groupIndexes.get(groupId);
+        int[] groups = userGroups.get(userId);
+        if (group == null || groups == null) {
+            return;
+        }
+        int position = Arrays.binarySearch(groups, group);
+        if (position < 0) {
+            return;
+        }
+        int[] updated = new int[groups.length - 1];
+        System.arraycopy(groups, 0, updated, 0, position);
+        System.arraycopy(groups, position + 1, updated, position, groups.length - position - 1);
+        userGroups.put(userId, updated);
+    }
+
+    /**
+     * @param user user id or login
+     * @return true if the user is known to the index
+     */
+    public boolean containsUser(String user) {
+        return groups(user) != null;
+    }
+
+    /**
+     * @param user user id or login
+     * @param groupId group id
+     * @return true if the user is a member of the group
+     */
+    public boolean isMember(String user, String groupId) {
+        int[] groups = groups(user);
+        Integer group = groupIndexes.get(groupId);
+        return groups != null && group != null && Arrays.binarySearch(groups, group) >= 0;
+    }
+
+    /**
+     * @param user user id or login
+     * @return the groups of the user as a JSON array, or null if the user is unknown or one of its
+     *         groups is only known by id
+     */
+    public String getGroupsJson(String user) {
+        int[] groups = groups(user);
+        if (groups == null) {
+            return null;
+        }
+        String[] json = groupJson;
+        StringBuilder array = new StringBuilder(groups.length * 256).append('[');
+        for (int i = 0; i < groups.length; i++) {
+            if (json[groups[i]] == null) {
+                return null;
+            }
+            if (i > 0) {
+                array.append(',');
+            }
+            array.append(json[groups[i]]);
+        }
+        return array.append(']').toString();
+    }
+
+    /**
+     * @param group interned index of a group
+     * @return the id of the group
+     */
+    public String getGroupId(int group) {
+        return groupIds[group];
+    }
+
+    public int getUserCount() {
+        return userGroups.size();
+    }
+
+    public synchronized int getGroupCount() {
+        return groupCount;
+    }
+
+    /**
+     * @return rough estimate of the heap used by the index, in bytes
+     */
+    public long estimateMemory() {
+        long bytes = 0;
+        for (Map.Entry<String, int[]> user : userGroups.entrySet()) {
+            // map entry, key string and int array headers
+            bytes += 32 + 40 + user.getKey().length() * 2 + 16 + user.getValue().length * 4;
+        }
+        for (Map.Entry<String, String> login : logins.entrySet()) {
+            bytes += 32 + 40 + login.getKey().length() * 2;
+        }
+        String[] json = groupJson;
+        synchronized (this) {
+            for (int i = 0; i < groupCount; i++) {
+                bytes += 32 + 40 + groupIds[i].length() * 2 + (json[i] != null ? 40 + json[i].length() * 2 : 0);
+            }
+        }
+        return bytes;
+    }
+
+    private int[] groups(String user) {
+        int[] groups = userGroups.get(user);
+        if (groups == null) {
+            String id = logins.get(user);
+            groups = id != null ? userGroups.get(id) : null;
+        }
+        return groups;
+    }
+}
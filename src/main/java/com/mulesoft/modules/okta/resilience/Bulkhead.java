@@ -0,0 +1,75 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.resilience;
+
+import java.io.InterruptedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the number of threads that may be calling one endpoint family at the
+ * same time, so a slow family cannot hold every worker thread.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int limit;
+    private final long maxWaitMillis;
+    private final Semaphore permits;
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param name endpoint family
+     * @param limit maximum number of concurrent calls, 0 or less for no limit
+     * @param maxWaitMillis longest a call may wait for room before it is rejected, 0 to reject at once
+     */
+    public Bulkhead(String name, int limit, long maxWaitMillis) {
+        this.name = name;
+        this.limit = limit;
+        this.maxWaitMillis = maxWaitMillis;
+        this.permits = limit > 0 ? new Semaphore(limit, true) : null;
+    }
+
+    /**
+     * @throws CallRejectedException if there is no room within the maximum wait
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    public void acquire() throws CallRejectedException, InterruptedIOException {
+        if (permits == null) {
+            return;
+        }
+        try {
+            if (!(maxWaitMillis > 0 ? permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS) : permits.tryAcquire())) {
+                rejected.incrementAndGet();
+                throw new CallRejectedException(name, "Too many concurrent calls to the " + name + " endpoints of Okta (limit " + limit + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the " + name + " bulkhead");
+        }
+    }
+
+    public void release() {
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    /**
+     * @return limit, inFlight and rejected
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<String, Object>();
+        status.put("limit", limit);
+        status.put("inFlight", permits != null ? limit - permits.availablePermits() : -1);
+        status.put("rejected", rejected.get());
+        return status;
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.resilience;
+
+import java.io.IOException;
+
+/**
+ * Thrown without calling Okta when the circuit breaker of an endpoint family is
+ * open, or when its bulkhead has no room left for another call.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class CallRejectedException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String compartment;
+
+    public CallRejectedException(String compartment, String message) {
+        super(message);
+        this.compartment = compartment;
+    }
+
+    /**
+     * @return the endpoint family that rejected the call, e.g. "authn"
+     */
+    public String getCompartment() {
+        return compartment;
+    }
+}
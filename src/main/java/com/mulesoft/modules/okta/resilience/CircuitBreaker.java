@@ -0,0 +1,175 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.resilience;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stops calling an endpoint family once too many of its recent calls failed or
+ * were slow. After the open duration a few trial calls are let through; the
+ * breaker closes again if they all succeed in time.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final int TRIAL_CALLS = 3;
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallMillis;
+    private final long openMillis;
+
+    private final boolean[] failures;
+    private final boolean[] slowCalls;
+    private int next;
+    private int size;
+    private int failureCount;
+    private int slowCallCount;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int trialsStarted;
+    private int trialsSucceeded;
+    private long rejected;
+    private long opened;
+
+    /**
+     * @param windowSize number of recent calls the rates are computed on
+     * @param minimumCalls number of calls needed before the breaker may open
+     * @param failureRateThreshold percentage of failed calls that opens the breaker
+     * @param slowCallRateThreshold percentage of slow calls that opens the breaker
+     * @param slowCallMillis latency above which a call is slow
+     * @param openMillis time the breaker stays open before trial calls are let through
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, double slowCallRateThreshold,
+                          long slowCallMillis, long openMillis) {
+        this.failures = new boolean[windowSize];
+        this.slowCalls = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallMillis = slowCallMillis;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Must be followed by {@link #record(boolean, long, long)} or {@link #cancel()} when it returns true.
+     *
+     * @param now current time in milliseconds
+     * @return true if the call may be sent
+     */
+    public synchronized boolean allow(long now) {
+        if (state == State.OPEN) {
+            if (now - openedAt < openMillis) {
+                rejected++;
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trialsStarted = 0;
+            trialsSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsStarted >= TRIAL_CALLS) {
+                rejected++;
+                return false;
+            }
+            trialsStarted++;
+        }
+        return true;
+    }
+
+    /**
+     * @param failed true if Okta could not be reached or answered 5xx
+     * @param latencyMillis time until Okta answered
+     * @param now current time in milliseconds
+     */
+    public synchronized void record(boolean failed, long latencyMillis, long now) {
+        boolean slow = latencyMillis >= slowCallMillis;
+        switch (state) {
+            case HALF_OPEN:
+                if (failed || slow) {
+                    open(now);
+                } else if (++trialsSucceeded >= TRIAL_CALLS) {
+                    close();
+                }
+                break;
+            case CLOSED:
+                add(failed, slow);
+                if (size >= minimumCalls && (rate(failureCount) >= failureRateThreshold || rate(slowCallCount) >= slowCallRateThreshold)) {
+                    open(now);
+                }
+                break;
+            default:
+                // admitted before the breaker opened
+                break;
+        }
+    }
+
+    /**
+     * Gives back a call let through by {@link #allow(long)} that was never sent.
+     */
+    public synchronized void cancel() {
+        if (state == State.HALF_OPEN && trialsStarted > trialsSucceeded) {
+            trialsStarted--;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return state, calls, failureRate, slowCallRate, rejected and opened
+     */
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<String, Object>();
+        status.put("state", state.name());
+        status.put("calls", size);
+        status.put("failureRate", rate(failureCount));
+        status.put("slowCallRate", rate(slowCallCount));
+        status.put("rejected", rejected);
+        status.put("opened", opened);
+        return status;
+    }
+
+    private void add(boolean failed, boolean slow) {
+        if (size == failures.length) {
+            failureCount -= failures[next] ? 1 : 0;
+            slowCallCount -= slowCalls[next] ? 1 : 0;
+        } else {
+            size++;
+        }
+        failures[next] = failed;
+        slowCalls[next] = slow;
+        failureCount += failed ? 1 : 0;
+        slowCallCount += slow ? 1 : 0;
+        next = (next + 1) % failures.length;
+    }
+
+    private double rate(int count) {
+        return size == 0 ? 0 : count * 100.0 / size;
+    }
+
+    private void open(long now) {
+        state = State.OPEN;
+        openedAt = now;
+        opened++;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        next = 0;
+        size = 0;
+        failureCount = 0;
+        slowCallCount = 0;
+    }
+}
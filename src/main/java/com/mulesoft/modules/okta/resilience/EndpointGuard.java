@@ -0,0 +1,215 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.resilience;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.mulesoft.modules.okta.config.OktaConnectorConfig;
+import com.mulesoft.modules.okta.ratelimit.RateLimitScheduler;
+
+/**
+ * Isolates the endpoint families of Okta from each other: each family has its
+ * own bulkhead and circuit breaker, so a degraded authn API does not slow down
+ * user management. The guards of several orgs share their bulkheads but each org
+ * has circuit breakers of its own, so a degraded org does not reject the calls
+ * to the others. Async calls share the circuit breakers of their family but have
+ * bulkheads of their own, which reject at once instead of making the caller wait.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class EndpointGuard {
+
+    public static final String USERS = "users";
+    public static final String LIFECYCLE = "lifecycle";
+    public static final String CREDENTIALS = "credentials";
+    public static final String AUTHN = "authn";
+    public static final String SESSIONS = "sessions";
+    public static final String OTHER = "other";
+
+    private final Map<String, Compartment> compartments = new LinkedHashMap<String, Compartment>();
+    private final Map<String, Compartment> asyncCompartments = new LinkedHashMap<String, Compartment>();
+
+    public EndpointGuard(OktaConnectorConfig config) {
+        long maxWait = config.getBulkheadMaxWait();
+        add(config, USERS, config.getUsersConcurrency(), maxWait);
+        add(config, LIFECYCLE, config.getLifecycleConcurrency(), maxWait);
+        add(config, CREDENTIALS, config.getCredentialsConcurrency(), maxWait);
+        add(config, AUTHN, config.getAuthnConcurrency(), maxWait);
+        add(config, SESSIONS, config.getSessionsConcurrency(), maxWait);
+        add(config, OTHER, 0, maxWait);
+    }
+
+    private EndpointGuard() {
+    }
+
+    /**
+     * @param config configuration of the circuit breakers
+     * @return a guard for another org, sharing the bulkheads of this one
+     */
+    public EndpointGuard forOrg(OktaConnectorConfig config) {
+        EndpointGuard guard = new EndpointGuard();
+        for (Compartment compartment : compartments.values()) {
+            CircuitBreaker breaker = breaker(config);
+            guard.compartments.put(compartment.name, new Compartment(compartment.name, compartment.bulkhead, breaker));
+            guard.asyncCompartments.put(compartment.name,
+                    new Compartment(compartment.name, asyncCompartments.get(compartment.name).bulkhead, breaker));
+        }
+        return guard;
+    }
+
+    /**
+     * @param path API path relative to the version, e.g. "/users/123/lifecycle/activate"
+     * @return the compartment guarding the path
+     */
+    public Compartment compartment(String path) {
+        return compartments.get(name(path));
+    }
+
+    /**
+     * @param path API path relative to the version
+     * @return the compartment guarding async calls to the path; its bulkhead never waits
+     */
+    public Compartment asyncCompartment(String path) {
+        return asyncCompartments.get(name(path));
+    }
+
+    /**
+     * @param path API path relative to the version
+     * @return the name of the compartment guarding the path, e.g. "lifecycle"
+     */
+    public static String name(String path) {
+        String family = RateLimitScheduler.family(path);
+        if (USERS.equals(family)) {
+            if (path.contains("/lifecycle/")) {
+                return LIFECYCLE;
+            }
+            if (path.contains("/credentials/")) {
+                return CREDENTIALS;
+            }
+            return USERS;
+        }
+        if (AUTHN.equals(family) || SESSIONS.equals(family)) {
+            return family;
+        }
+        return OTHER;
+    }
+
+    /**
+     * @return circuit breaker and bulkhead status per compartment
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<String, Object>();
+        for (Compartment compartment : compartments.values()) {
+            Map<String, Object> compartmentStatus = compartment.getStatus();
+            compartmentStatus.put("asyncBulkhead", asyncCompartments.get(compartment.name).bulkhead.getStatus());
+            status.put(compartment.name, compartmentStatus);
+        }
+        return status;
+    }
+
+    private void add(OktaConnectorConfig config, String name, int limit, long maxWait) {
+        CircuitBreaker breaker = breaker(config);
+        compartments.put(name, new Compartment(name, new Bulkhead(name, limit, maxWait), breaker));
+        asyncCompartments.put(name, new Compartment(name, new Bulkhead(name, config.getAsyncConcurrency(), 0), breaker));
+    }
+
+    private static CircuitBreaker breaker(OktaConnectorConfig config) {
+        if (!config.isCircuitBreakerEnabled()) {
+            return null;
+        }
+        return new CircuitBreaker(config.getCircuitBreakerWindowSize(), config.getCircuitBreakerMinimumCalls(),
+                config.getCircuitBreakerFailureRate(), config.getCircuitBreakerSlowCallRate(),
+                config.getCircuitBreakerSlowCallDuration(), config.getCircuitBreakerOpenDuration() * 1000L);
+    }
+
+    /**
+     * Bulkhead and circuit breaker of one endpoint family.
+     */
+    public static class Compartment {
+        private final String name;
+        private final Bulkhead bulkhead;
+        private final CircuitBreaker breaker;
+
+        Compartment(String name, Bulkhead bulkhead, CircuitBreaker breaker) {
+            this.name = name;
+            this.bulkhead = bulkhead;
+            this.breaker = breaker;
+        }
+
+        /**
+         * Takes room in the bulkhead and asks the circuit breaker to let the call through.
+         * Must be followed by {@link #exit(boolean, long)} or {@link #release()}.
+         *
+         * @throws IOException if the call is rejected
+         */
+        public void enter() throws IOException {
+            bulkhead.acquire();
+            try {
+                allow();
+            } catch (IOException e) {
+                bulkhead.release();
+                throw e;
+            }
+        }
+
+        /**
+         * @param failed true if Okta could not be reached or answered 5xx
+         * @param latencyMillis time until Okta answered
+         */
+        public void exit(boolean failed, long latencyMillis) {
+            try {
+                record(failed, latencyMillis);
+            } finally {
+                bulkhead.release();
+            }
+        }
+
+        /**
+         * Leaves the bulkhead when the call was not sent after all.
+         */
+        public void release() {
+            try {
+                cancel();
+            } finally {
+                bulkhead.release();
+            }
+        }
+
+        /**
+         * Asks the circuit breaker only, for calls that do not hold a thread while in flight.
+         * Must be followed by {@link #record(boolean, long)} or {@link #cancel()}.
+         *
+         * @throws CallRejectedException if the circuit breaker is open
+         */
+        public void allow() throws CallRejectedException {
+            if (breaker != null && !breaker.allow(System.currentTimeMillis())) {
+                throw new CallRejectedException(name, "Circuit breaker for the " + name + " endpoints of Okta is open");
+            }
+        }
+
+        public void record(boolean failed, long latencyMillis) {
+            if (breaker != null) {
+                breaker.record(failed, latencyMillis, System.currentTimeMillis());
+            }
+        }
+
+        public void cancel() {
+            if (breaker != null) {
+                breaker.cancel();
+            }
+        }
+
+        public Map<String, Object> getStatus() {
+            Map<String, Object> status = new LinkedHashMap<String, Object>();
+            if (breaker != null) {
+                status.putAll(breaker.getStatus());
+            }
+            status.put("bulkhead", bulkhead.getStatus());
+            return status;
+        }
+    }
+}
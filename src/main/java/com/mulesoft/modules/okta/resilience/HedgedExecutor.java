@@ -0,0 +1,120 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.resilience;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends a second, identical request when the first one has not answered within
+ * the tracked latency percentile, and returns whichever answers first. Only to
+ * be used for idempotent calls.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class HedgedExecutor {
+
+    private final LatencyTracker latencies;
+    private final long minDelayMillis;
+    private final ExecutorService executor;
+    private final AtomicLong hedged = new AtomicLong();
+
+    /**
+     * @param percentile latency percentile after which the request is hedged, e.g. 95
+     * @param minDelayMillis never hedge before this delay
+     */
+    public HedgedExecutor(double percentile, long minDelayMillis) {
+        this.latencies = new LatencyTracker(1024, percentile);
+        this.minDelayMillis = minDelayMillis;
+        this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger threads = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "okta-hedge-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @param call idempotent call
+     * @return result of the first attempt to succeed
+     * @throws IOException failure of the attempts
+     */
+    public <T> T execute(Callable<T> call) throws IOException {
+        long start = System.currentTimeMillis();
+        long threshold = latencies.getThreshold();
+        CompletionService<T> attempts = new ExecutorCompletionService<T>(executor);
+        Future<T> primary = attempts.submit(call);
+        Future<T> hedge = null;
+        try {
+            Future<T> done = threshold < 0 ? attempts.take() : attempts.poll(Math.max(threshold, minDelayMillis), TimeUnit.MILLISECONDS);
+            if (done == null) {
+                hedged.incrementAndGet();
+                hedge = attempts.submit(call);
+                done = attempts.take();
+            }
+            try {
+                T result = done.get();
+                latencies.record(System.currentTimeMillis() - start);
+                return result;
+            } catch (ExecutionException e) {
+                if (hedge == null) {
+                    throw e;
+                }
+                // the other attempt may still succeed
+                return attempts.take().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a hedged request");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * @return number of requests that were hedged
+     */
+    public long getHedgedCount() {
+        return hedged.get();
+    }
+
+    /**
+     * @return current hedging delay in milliseconds, -1 until enough latencies have been recorded
+     */
+    public long getThreshold() {
+        return latencies.getThreshold();
+    }
+
+    public void close() {
+        executor.shutdownNow();
+    }
+}
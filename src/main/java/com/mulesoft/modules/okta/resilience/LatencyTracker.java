@@ -0,0 +1,50 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.resilience;
+
+import java.util.Arrays;
+
+/**
+ * Sliding window of recent latencies, used to derive a percentile.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class LatencyTracker {
+
+    private static final int RECOMPUTE_EVERY = 64;
+
+    private final long[] samples;
+    private final double percentile;
+    private int count;
+    private int next;
+    private volatile long threshold = -1;
+
+    /**
+     * @param size number of samples kept
+     * @param percentile percentile to track, e.g. 95
+     */
+    public LatencyTracker(int size, double percentile) {
+        this.samples = new long[size];
+        this.percentile = percentile;
+    }
+
+    public synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        count++;
+        if (count % RECOMPUTE_EVERY == 0) {
+            long[] window = Arrays.copyOf(samples, Math.min(count, samples.length));
+            Arrays.sort(window);
+            threshold = window[(int) Math.min(window.length - 1, Math.ceil(window.length * percentile / 100.0) - 1)];
+        }
+    }
+
+    /**
+     * @return latency at the tracked percentile, -1 until enough samples have been recorded
+     */
+    public long getThreshold() {
+        return threshold;
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.resilience;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+
+import com.mulesoft.modules.okta.client.OktaException;
+import com.mulesoft.modules.okta.ratelimit.RateLimitExceededException;
+
+/**
+ * Retries transient failures with exponential backoff and jitter. A Retry-After
+ * returned by Okta is honored when it is longer than the computed backoff.
+ * Only to be used for idempotent calls.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class RetryPolicy {
+
+    private final int maxRetries;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Random random = new Random();
+
+    /**
+     * @param maxRetries number of retries after the first attempt
+     * @param initialBackoffMillis backoff before the first retry, doubled for every retry
+     * @param maxBackoffMillis upper bound of the backoff
+     */
+    public RetryPolicy(int maxRetries, long initialBackoffMillis, long maxBackoffMillis) {
+        this.maxRetries = maxRetries;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * @param call idempotent call
+     * @return the result of the first successful attempt
+     * @throws IOException the failure of the last attempt
+     */
+    public <T> T execute(Callable<T> call) throws IOException {
+        for (int attempt = 0;; attempt++) {
+            try {
+                return call.call();
+            } catch (IOException e) {
+                if (attempt >= maxRetries || !isTransient(e)) {
+                    throw e;
+                }
+                sleep(backoff(attempt, e));
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    /**
+     * @param e failure of a call
+     * @return true for 429 and 5xx answers and for I/O errors, timeouts included, since the
+     *         policy only retries idempotent calls; false for interrupts and for calls rejected by
+     *         a circuit breaker, a bulkhead or the rate limit budget
+     */
+    public static boolean isTransient(Exception e) {
+        if (e instanceof CallRejectedException || e instanceof RateLimitExceededException) {
+            return false;
+        }
+        if (e instanceof OktaException) {
+            return ((OktaException) e).isTransient();
+        }
+        // SocketTimeoutException and ConnectTimeoutException extend InterruptedIOException, only a real interrupt stops
+        return e instanceof IOException && e.getClass() != InterruptedIOException.class
+                && !Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * @param e failure of a call that is not idempotent, such as a lifecycle operation that sends an email
+     * @return true only when Okta did not process the call: 429 and 503 answers, connections that could
+     *         not be opened and pooled connections closed by the server before any answer
+     */
+    public static boolean isSafeToResend(Exception e) {
+        if (e instanceof OktaException) {
+            int status = ((OktaException) e).getStatus();
+            return status == 429 || status == 503;
+        }
+        return e instanceof ConnectException || e instanceof ConnectTimeoutException || e instanceof NoHttpResponseException;
+    }
+
+    /**
+     * @param attempt number of the failed attempt, from 0
+     * @param failure failure of the attempt
+     * @return time to wait before the next attempt, in milliseconds
+     */
+    public long backoff(int attempt, Exception failure) {
+        long exponential = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt, 20));
+        // equal jitter: half fixed, half random, so concurrent callers do not retry in lockstep
+        long jittered = exponential / 2 + (long) (random.nextDouble() * (exponential / 2 + 1));
+        if (failure instanceof OktaException) {
+            jittered = Math.max(jittered, ((OktaException) failure).getRetryAfterMillis());
+        }
+        return jittered;
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+}
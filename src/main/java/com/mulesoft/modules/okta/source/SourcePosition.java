@@ -0,0 +1,113 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.source;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Position of a message source: the latest timestamp emitted, the ids of the records
+ * emitted at that timestamp and, optionally, the URL to read next. Okta timestamps
+ * have a millisecond resolution, so records sharing the latest timestamp may still be
+ * missing when a poll runs; reading again from that timestamp inclusively and skipping
+ * the ids already emitted neither loses nor repeats them.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class SourcePosition {
+
+    private String timestamp;
+    private String nextUrl;
+    private final Set<String> ids = new LinkedHashSet<String>();
+
+    /**
+     * @param timestamp initial timestamp, or null to start from the beginning
+     */
+    public SourcePosition(String timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @param value value returned by {@link #encode()}, or null
+     * @param timestamp initial timestamp, used when value is null
+     * @return the position
+     */
+    public static SourcePosition decode(String value, String timestamp) {
+        if (value == null) {
+            return new SourcePosition(timestamp);
+        }
+        String[] fields = value.split("\n");
+        SourcePosition position = new SourcePosition(fields[0].isEmpty() ? null : fields[0]);
+        position.nextUrl = fields.length > 1 && !fields[1].isEmpty() ? fields[1] : null;
+        for (int i = 2; i < fields.length; i++) {
+            position.ids.add(fields[i]);
+        }
+        return position;
+    }
+
+    public String encode() {
+        StringBuilder value = new StringBuilder();
+        value.append(timestamp != null ? timestamp : "").append('\n').append(nextUrl != null ? nextUrl : "");
+        for (String id : ids) {
+            value.append('\n').append(id);
+        }
+        return value.toString();
+    }
+
+    /**
+     * @return a copy of this position, to advance while a poll is in progress
+     */
+    public SourcePosition copy() {
+        SourcePosition copy = new SourcePosition(timestamp);
+        copy.nextUrl = nextUrl;
+        copy.ids.addAll(ids);
+        return copy;
+    }
+
+    /**
+     * @param timestamp timestamp of a record
+     * @param id id of the record
+     * @return true if the record was emitted before reaching this position
+     */
+    public boolean isEmitted(String timestamp, String id) {
+        if (timestamp == null || this.timestamp == null) {
+            return false;
+        }
+        int order = timestamp.compareTo(this.timestamp);
+        return order < 0 || order == 0 && ids.contains(id);
+    }
+
+    /**
+     * Moves the position past an emitted record.
+     *
+     * @param timestamp timestamp of the record
+     * @param id id of the record
+     */
+    public void record(String timestamp, String id) {
+        if (timestamp == null) {
+            return;
+        }
+        int order = this.timestamp != null ? timestamp.compareTo(this.timestamp) : 1;
+        if (order > 0) {
+            this.timestamp = timestamp;
+            ids.clear();
+        }
+        if (order >= 0 && id != null) {
+            ids.add(id);
+        }
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+
+    public String getNextUrl() {
+        return nextUrl;
+    }
+
+    public void setNextUrl(String nextUrl) {
+        this.nextUrl = nextUrl;
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.source;
+
+import java.io.Serializable;
+
+import org.mule.api.store.ObjectStore;
+import org.mule.api.store.ObjectStoreException;
+
+/**
+ * Keeps the position of a message source in a Mule object store, so a restarted
+ * application resumes where it left off.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class WatermarkStore {
+
+    private final ObjectStore<Serializable> store;
+    private final String key;
+
+    /**
+     * @param store object store, persistent to survive restarts
+     * @param key key of the watermark in the store
+     */
+    public WatermarkStore(ObjectStore<Serializable> store, String key) {
+        this.store = store;
+        this.key = key;
+    }
+
+    /**
+     * @param initial value to use when nothing has been stored yet
+     * @return the stored watermark, or the initial value
+     * @throws ObjectStoreException if the store cannot be read
+     */
+    public String get(String initial) throws ObjectStoreException {
+        return store.contains(key) ? (String) store.retrieve(key) : initial;
+    }
+
+    /**
+     * @param watermark new watermark, ignored if null
+     * @throws ObjectStoreException if the store cannot be written
+     */
+    public void set(String watermark) throws ObjectStoreException {
+        if (watermark == null) {
+            return;
+        }
+        if (store.contains(key)) {
+            store.remove(key);
+        }
+        store.store(key, watermark);
+    }
+
+    /**
+     * Forgets the watermark, so the next run starts from its initial value.
+     *
+     * @throws ObjectStoreException if the store cannot be written
+     */
+    public void clear() throws ObjectStoreException {
+        if (store.contains(key)) {
+            store.remove(key);
+        }
+    }
+}
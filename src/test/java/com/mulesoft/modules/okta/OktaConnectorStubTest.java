@@ -0,0 +1,237 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mule.api.NestedProcessor;
+
+import com.mulesoft.modules.okta.client.OktaException;
+import com.mulesoft.modules.okta.config.OktaConnectorConfig;
+import com.mulesoft.modules.okta.model.Group;
+import com.mulesoft.modules.okta.model.User;
+import com.mulesoft.modules.okta.resilience.CallRejectedException;
+import com.mulesoft.modules.okta.resilience.EndpointGuard;
+import com.mulesoft.modules.okta.stub.OktaStubServer;
+
+public class OktaConnectorStubTest {
+
+    private OktaStubServer server;
+    private OktaConnector connector;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new OktaStubServer(500).setPageSize(100).start();
+        connector = connector(server.createConfig());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connector.stop();
+        server.stop();
+    }
+
+    @Test
+    public void getUser() throws Exception {
+        User user = connector.getUserTyped(OktaStubServer.userId(7), null);
+        assertEquals(OktaStubServer.userId(7), user.getId());
+        assertEquals("user7@example.com", user.getProfile().getLogin());
+        assertTrue(connector.getUser("user7@example.com").contains(OktaStubServer.userId(7)));
+    }
+
+    @Test
+    public void unknownUser() throws Exception {
+        try {
+            connector.getUser("nobody");
+            fail();
+        } catch (OktaException e) {
+            assertEquals(404, e.getStatus());
+        }
+    }
+
+    @Test
+    public void pageSizeIsCapped() throws Exception {
+        List<User> users = connector.listUsersTyped(null, 1000, null, OktaStubServer.userId(449), "id");
+        assertEquals(50, users.size());
+        assertEquals(OktaStubServer.userId(450), users.get(0).getId());
+    }
+
+    @Test
+    public void lifecycleChangesStatus() throws Exception {
+        connector.deactivateUser(OktaStubServer.userId(3));
+        assertEquals("DEPROVISIONED", connector.getUserTyped(OktaStubServer.userId(3), "status").getStatus());
+        List<Group> groups = connector.getUserGroupsTyped(OktaStubServer.userId(3), null);
+        assertEquals("Everyone", groups.get(0).getName());
+    }
+
+    @Test
+    public void updatingUserByIdInvalidatesLookupByLogin() throws Exception {
+        connector.getConfig().setUserCacheEnabled(true);
+        assertTrue(connector.getUser("user3@example.com").contains("\"ACTIVE\""));
+        connector.getUser("user3@example.com");
+        connector.getUser(OktaStubServer.userId(3));
+        assertEquals(1, server.getRequestCount());
+        connector.deactivateUser(OktaStubServer.userId(3));
+        assertTrue(connector.getUser("user3@example.com").contains("\"DEPROVISIONED\""));
+    }
+
+    @Test
+    public void asyncCallsOverTheirLimitFailAtOnce() throws Exception {
+        server.setLatency(300);
+        connector.getConfig().setUsersConcurrency(1);
+        connector.getConfig().setAsyncConcurrency(1);
+        Future<String> user = connector.getUserAsync(OktaStubServer.userId(1));
+        long start = System.currentTimeMillis();
+        Future<String> rejected = connector.getUserAsync(OktaStubServer.userId(2));
+        assertTrue(System.currentTimeMillis() - start < 300);
+        try {
+            rejected.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals(EndpointGuard.USERS, ((CallRejectedException) e.getCause()).getCompartment());
+        }
+        // blocking calls have bulkheads of their own
+        assertTrue(connector.getUser(OktaStubServer.userId(3)).contains(OktaStubServer.userId(3)));
+        assertTrue(user.get().contains(OktaStubServer.userId(1)));
+        assertTrue(connector.getUserAsync(OktaStubServer.userId(2)).get().contains(OktaStubServer.userId(2)));
+    }
+
+    @Test
+    public void asyncReadByLoginIsCachedUnderTheId() throws Exception {
+        connector.getConfig().setUserCacheEnabled(true);
+        connector.getUserAsync("user4@example.com").get();
+        // the cache is filled by a callback that runs after the future completes
+        for (int i = 0; i < 100 && !Integer.valueOf(1).equals(connector.getUserCacheStatistics().get("size")); i++) {
+            Thread.sleep(10);
+        }
+        connector.getUser(OktaStubServer.userId(4));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void sessions() throws Exception {
+        String session = connector.createSessionTyped("{\"sessionToken\":\"token\"}", null).getId();
+        assertTrue(connector.extendSession(session).contains(session));
+    }
+
+    @Test
+    public void rateLimitedCallsAreQueued() throws Exception {
+        server.setRateLimitEvery(4);
+        for (int i = 0; i < 6; i++) {
+            assertEquals(OktaStubServer.userId(i), connector.getUserTyped(OktaStubServer.userId(i), "id").getId());
+        }
+        assertEquals(7, server.getRequestCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void operationMetrics() throws Exception {
+        connector.getUser(OktaStubServer.userId(1));
+        connector.getUser(OktaStubServer.userId(2));
+        Map<String, Object> metrics = (Map<String, Object>) connector.getOperationMetrics("GET /users/{id}").get("GET /users/{id}");
+        assertEquals(2L, metrics.get("requests"));
+        assertTrue((Long) metrics.get("responseBytes") > 0);
+    }
+
+    @Test
+    public void updateUserDeltaSendsOnlyChanges() throws Exception {
+        String id = OktaStubServer.userId(5);
+        String profile = "{\"profile\":{\"login\":\"user5@example.com\",\"email\":\"user5@example.com\","
+                + "\"firstName\":\"First5\",\"lastName\":\"Last5\",\"department\":\"Dept5\"}}";
+        Map<String, Object> first = connector.updateUserDelta(profile, id);
+        assertEquals(true, first.get("updated"));
+        assertEquals(5, ((List<?>) first.get("changed")).size());
+
+        long requests = server.getRequestCount();
+        Map<String, Object> unchanged = connector.updateUserDelta(profile, id);
+        assertEquals(false, unchanged.get("updated"));
+        assertEquals(requests, server.getRequestCount());
+
+        Map<String, Object> renamed = connector.updateUserDelta(profile.replace("Last5", "Renamed"), id);
+        assertEquals(Collections.singletonList("lastName"), renamed.get("changed"));
+        assertEquals("{\"profile\":{\"lastName\":\"Renamed\"}}", server.getLastRequestBody());
+    }
+
+    @Test
+    public void withOrg() throws Exception {
+        OktaStubServer other = new OktaStubServer(20).start();
+        try {
+            connector.getConfig().setOrgs(Collections.singletonMap(other.getHost(), "stub"));
+            List<NestedProcessor> getUser = Collections.<NestedProcessor>singletonList(new Nested() {
+                @Override
+                public Object process(Object payload) throws Exception {
+                    return connector.getUser((String) payload);
+                }
+            });
+            assertTrue(((String) connector.withOrg(other.getHost(), OktaStubServer.userId(7), getUser)).contains(OktaStubServer.userId(7)));
+            try {
+                connector.withOrg(other.getHost(), OktaStubServer.userId(100), getUser);
+                fail();
+            } catch (OktaException e) {
+                assertEquals(404, e.getStatus());
+            }
+            assertTrue(connector.getUser(OktaStubServer.userId(100)).contains(OktaStubServer.userId(100)));
+            assertEquals(2, other.getRequestCount());
+        } finally {
+            other.stop();
+        }
+    }
+
+    @Test
+    public void sessionCacheIsPerOrg() throws Exception {
+        OktaStubServer other = new OktaStubServer(20).start();
+        try {
+            connector.getConfig().setSessionCacheEnabled(true);
+            connector.getConfig().setOrgs(Collections.singletonMap(other.getHost(), "stub"));
+            String session = connector.createSessionTyped("{\"sessionToken\":\"token\"}", null).getId();
+            connector.extendSession(session);
+            List<NestedProcessor> extendSession = Collections.<NestedProcessor>singletonList(new Nested() {
+                @Override
+                public Object process(Object payload) throws Exception {
+                    return connector.extendSession((String) payload);
+                }
+            });
+            connector.withOrg(other.getHost(), session, extendSession);
+            connector.withOrg(other.getHost(), session, extendSession);
+            assertEquals(1, other.getRequestCount());
+        } finally {
+            other.stop();
+        }
+    }
+
+    private static OktaConnector connector(OktaConnectorConfig config) {
+        OktaConnector connector = new OktaConnector();
+        connector.setConfig(config);
+        return connector;
+    }
+
+    private abstract static class Nested implements NestedProcessor {
+        @Override
+        public Object process() throws Exception {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object process(Object payload, Map<String, Object> properties) throws Exception {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object processWithExtraProperties(Map<String, Object> properties) throws Exception {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
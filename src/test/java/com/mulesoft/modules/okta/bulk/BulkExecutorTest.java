@@ -0,0 +1,220 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mulesoft.modules.okta.client.OktaException;
+import com.mulesoft.modules.okta.resilience.RetryPolicy;
+
+public class BulkExecutorTest {
+
+    private ExecutorService pool;
+
+    @Before
+    public void setUp() {
+        pool = BulkExecutor.createPool("bulk-test");
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void resultsComeInInputOrder() {
+        BulkExecutor<Integer> executor = new BulkExecutor<Integer>(pool, range(20), new SleepingTask(), 4);
+        for (int i = 0; i < 20; i++) {
+            BulkItemResult result = executor.next();
+            assertEquals(i, result.getIndex());
+            assertEquals(String.valueOf(i), result.getKey());
+            assertEquals("done " + i, result.getResponse());
+        }
+        assertFalse(executor.hasNext());
+    }
+
+    @Test
+    public void failingItemDoesNotStopTheOthers() {
+        BulkTask<Integer> task = new SleepingTask() {
+            @Override
+            public String execute(Integer item, String key) throws Exception {
+                if (item == 2) {
+                    throw new IllegalArgumentException("bad item");
+                }
+                return super.execute(item, key);
+            }
+        };
+        List<BulkItemResult> results = drain(new BulkExecutor<Integer>(pool, range(5), task, 2));
+        assertEquals(5, results.size());
+        assertFalse(results.get(2).isSuccessful());
+        assertEquals("bad item", results.get(2).getError());
+        assertTrue(results.get(3).isSuccessful());
+    }
+
+    @Test
+    public void concurrencyIsBoundedPerRun() {
+        SleepingTask task = new SleepingTask();
+        drain(new BulkExecutor<Integer>(pool, range(30), task, 3));
+        assertEquals(3, task.maxInFlight.get());
+    }
+
+    @Test
+    public void abandonedRunReleasesItsThreads() throws Exception {
+        BulkExecutor<Integer> executor = new BulkExecutor<Integer>(pool, range(1000), new SleepingTask(), 4);
+        executor.next();
+        // the consumer stops here; only the read-ahead completes, the rest of the items are never read
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelStopsTheRun() {
+        BulkExecutor<Integer> executor = new BulkExecutor<Integer>(pool, range(1000), new SleepingTask(), 4);
+        executor.cancel();
+        assertFalse(executor.hasNext());
+    }
+
+    @Test(timeout = 5000)
+    public void itemsRejectedByAStoppedPoolFail() {
+        pool.shutdown();
+        BulkExecutor<Integer> executor = new BulkExecutor<Integer>(pool, range(10), new SleepingTask(), 2);
+        for (int i = 0; i < 10; i++) {
+            BulkItemResult result = executor.next();
+            assertEquals(i, result.getIndex());
+            assertFalse(result.isSuccessful());
+            assertTrue(result.getError().startsWith("Rejected"));
+        }
+        assertFalse(executor.hasNext());
+    }
+
+    @Test(timeout = 5000)
+    public void poolStoppingDuringTheRunFailsTheRestOfTheItems() {
+        BulkExecutor<Integer> executor = new BulkExecutor<Integer>(pool, range(20), new SleepingTask(), 2);
+        assertTrue(executor.next().isSuccessful());
+        pool.shutdown();
+        for (int i = 1; i < 20; i++) {
+            // items already in flight run on, the ones submitted after the shutdown fail instead of hanging
+            BulkItemResult result = executor.next();
+            assertEquals(i, result.getIndex());
+            assertTrue(result.isSuccessful() || result.getError().startsWith("Rejected"));
+        }
+        assertFalse(executor.hasNext());
+    }
+
+    @Test
+    public void onlyCallsOktaDidNotProcessAreRetried() {
+        final Exception[] failures = {
+                new OktaException(503, "POST", "/users/1/lifecycle/activate", "{}"),
+                new ConnectException("Connection refused"),
+                new SocketTimeoutException("Read timed out"),
+                new OktaException(500, "POST", "/users/3/lifecycle/activate", "{}")
+        };
+        BulkTask<Integer> task = new BulkTask<Integer>() {
+            private final Set<Integer> failed = Collections.synchronizedSet(new HashSet<Integer>());
+
+            @Override
+            public String key(Integer item) {
+                return String.valueOf(item);
+            }
+
+            @Override
+            public String execute(Integer item, String key) throws Exception {
+                if (failed.add(item)) {
+                    throw failures[item];
+                }
+                return "done " + item;
+            }
+        };
+        List<BulkItemResult> results = drain(new BulkExecutor<Integer>(pool, range(4), task, 4, 3, new RetryPolicy(3, 1, 1)));
+        assertTrue(results.get(0).isSuccessful());
+        assertEquals(2, results.get(0).getAttempts());
+        assertTrue(results.get(1).isSuccessful());
+        assertEquals(2, results.get(1).getAttempts());
+        // the call may have reached Okta, resending it could send a second email
+        assertFalse(results.get(2).isSuccessful());
+        assertEquals(1, results.get(2).getAttempts());
+        assertFalse(results.get(3).isSuccessful());
+        assertEquals(1, results.get(3).getAttempts());
+    }
+
+    @Test
+    public void iteratorAcceptsCollectionsArraysAndSingleItems() {
+        assertEquals(Arrays.asList("a", "b"), drainItems(BulkExecutor.<String>iterator(Arrays.asList("a", "b"))));
+        assertEquals(Arrays.asList("a", "b"), drainItems(BulkExecutor.<String>iterator(new String[] {"a", "b"})));
+        assertEquals(Arrays.asList("a"), drainItems(BulkExecutor.<String>iterator("a")));
+        assertFalse(BulkExecutor.iterator(null).hasNext());
+    }
+
+    private static Iterator<Integer> range(int size) {
+        List<Integer> items = new ArrayList<Integer>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(i);
+        }
+        return items.iterator();
+    }
+
+    private static List<BulkItemResult> drain(Iterator<BulkItemResult> results) {
+        List<BulkItemResult> list = new ArrayList<BulkItemResult>();
+        while (results.hasNext()) {
+            list.add(results.next());
+        }
+        return list;
+    }
+
+    private static List<String> drainItems(Iterator<String> items) {
+        List<String> list = new ArrayList<String>();
+        while (items.hasNext()) {
+            list.add(items.next());
+        }
+        return list;
+    }
+
+    private static class SleepingTask implements BulkTask<Integer> {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+
+        @Override
+        public String key(Integer item) {
+            return String.valueOf(item);
+        }
+
+        @Override
+        public String execute(Integer item, String key) throws Exception {
+            int current = inFlight.incrementAndGet();
+            while (true) {
+                int max = maxInFlight.get();
+                if (current <= max || maxInFlight.compareAndSet(max, current)) {
+                    break;
+                }
+            }
+            try {
+                // later items finish first, so the results are reordered
+                Thread.sleep(5 + (item * 7) % 11);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return "done " + item;
+        }
+    }
+}
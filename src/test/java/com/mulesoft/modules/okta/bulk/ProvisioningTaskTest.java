@@ -0,0 +1,39 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ProvisioningTaskTest {
+
+    @Test
+    public void createIsKeyedByLogin() {
+        ProvisioningTask task = new ProvisioningTask(null, BulkUserOperation.CREATE, false);
+        assertEquals("a@example.com", task.key("{\"profile\":{\"login\":\"a@example.com\"}}"));
+        Map<String, Object> user = new LinkedHashMap<String, Object>();
+        user.put("profile", Collections.singletonMap("login", "b@example.com"));
+        assertEquals("b@example.com", task.key(user));
+    }
+
+    @Test
+    public void updateIsKeyedById() {
+        ProvisioningTask task = new ProvisioningTask(null, BulkUserOperation.UPDATE, false);
+        assertEquals("00u1", task.key("{\"profile\":{\"id\":\"nested\"},\"id\":\"00u1\"}"));
+        assertEquals("00u2", task.key(Collections.singletonMap("id", "00u2")));
+        assertNull(task.key("{\"profile\":{}}"));
+    }
+
+    @Test
+    public void malformedItemHasNoKey() {
+        assertNull(new ProvisioningTask(null, BulkUserOperation.CREATE, false).key("{not json"));
+    }
+}
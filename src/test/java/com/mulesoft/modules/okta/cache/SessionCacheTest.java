@@ -0,0 +1,104 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+public class SessionCacheTest {
+
+    @Test
+    public void validatedSessionIsServedUntilRefresh() {
+        SessionCache cache = new SessionCache(10, 0.5);
+        cache.put("102a", "{\"id\":\"102a\"}", timestamp(System.currentTimeMillis() + 3600000, true), cache.version("102a"));
+        assertEquals("{\"id\":\"102a\"}", cache.get("102a"));
+        assertEquals(1L, cache.getStatistics().get("hits"));
+    }
+
+    @Test
+    public void sessionIsValidatedAgainAfterTheRefreshFraction() {
+        SessionCache cache = new SessionCache(10, 0.25);
+        long now = System.currentTimeMillis();
+        cache.put("102a", "{}", timestamp(now + 2000, true), cache.version("102a"), now);
+        assertEquals("{}", cache.get("102a", now + 400));
+        // a quarter of the 2 s lifetime has passed, the session is still alive but must be extended
+        assertNull(cache.get("102a", now + 600));
+        assertEquals(1, cache.getStatistics().get("size"));
+
+        cache.put("102a", "{\"extended\":true}", timestamp(now + 2600, true), cache.version("102a"), now + 600);
+        assertEquals("{\"extended\":true}", cache.get("102a", now + 700));
+    }
+
+    @Test
+    public void expiredSessionIsDropped() {
+        SessionCache cache = new SessionCache(10, 0.5);
+        long now = System.currentTimeMillis();
+        cache.put("102a", "{}", timestamp(now + 1000, true), cache.version("102a"), now);
+        assertNull(cache.get("102a", now + 1000));
+        assertEquals(0, cache.getStatistics().get("size"));
+    }
+
+    @Test
+    public void sessionsWithoutValidExpiryAreNotCached() {
+        SessionCache cache = new SessionCache(10, 0.5);
+        cache.put("102a", "{}", timestamp(System.currentTimeMillis() - 1000, true), cache.version("102a"));
+        cache.put("102b", "{}", "tomorrow", cache.version("102b"));
+        cache.put("102c", "{}", null, cache.version("102c"));
+        assertEquals(0, cache.getStatistics().get("size"));
+    }
+
+    @Test
+    public void expiryWithoutMillisecondsIsParsed() {
+        SessionCache cache = new SessionCache(10, 0.5);
+        cache.put("102a", "{}", timestamp(System.currentTimeMillis() + 3600000, false), cache.version("102a"));
+        assertEquals("{}", cache.get("102a"));
+    }
+
+    @Test
+    public void closedSessionIsEvicted() {
+        SessionCache cache = new SessionCache(10, 0.5);
+        cache.put("102a", "{}", timestamp(System.currentTimeMillis() + 3600000, true), cache.version("102a"));
+        cache.evict("102a");
+        assertNull(cache.get("102a"));
+    }
+
+    @Test
+    public void validationInFlightWhenTheSessionIsClosedIsNotCached() {
+        SessionCache cache = new SessionCache(10, 0.5);
+        long version = cache.version("102a");
+        cache.evict("102a");
+        cache.put("102a", "{}", timestamp(System.currentTimeMillis() + 3600000, true), version);
+        assertNull(cache.get("102a"));
+        assertEquals(0, cache.getStatistics().get("size"));
+
+        cache.put("102a", "{}", timestamp(System.currentTimeMillis() + 3600000, true), cache.version("102a"));
+        assertEquals("{}", cache.get("102a"));
+    }
+
+    @Test
+    public void leastRecentlyUsedSessionIsEvicted() {
+        SessionCache cache = new SessionCache(2, 0.5);
+        String expiresAt = timestamp(System.currentTimeMillis() + 3600000, true);
+        cache.put("102a", "a", expiresAt, cache.version("102a"));
+        cache.put("102b", "b", expiresAt, cache.version("102b"));
+        cache.get("102a");
+        cache.put("102c", "c", expiresAt, cache.version("102c"));
+        assertEquals("a", cache.get("102a"));
+        assertNull(cache.get("102b"));
+        assertEquals(1L, cache.getStatistics().get("evictions"));
+    }
+
+    private static String timestamp(long millis, boolean withMillis) {
+        SimpleDateFormat format = new SimpleDateFormat(withMillis ? "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'" : "yyyy-MM-dd'T'HH:mm:ss'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(millis));
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class UserCacheTest {
+
+    private static final String ID = "00u00000000000000001";
+    private static final String OTHER = "00u00000000000000002";
+    private static final String LOGIN = "user1@example.com";
+
+    private UserCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new UserCache(4, 60000);
+    }
+
+    @Test
+    public void putAfterInvalidateIsDropped() {
+        UserCache.Version version = cache.version(ID);
+        // the user is updated while the previous profile is being read
+        cache.invalidate(ID);
+        cache.put(ID, "", "stale", ID, version);
+        assertNull(cache.get(ID, ""));
+
+        cache.put(ID, "", "fresh", ID, cache.version(ID));
+        assertEquals("fresh", cache.get(ID, ""));
+    }
+
+    @Test
+    public void invalidatingAnotherUserKeepsThePut() {
+        UserCache.Version version = cache.version(ID);
+        cache.invalidate(OTHER);
+        cache.put(ID, "", "profile", ID, version);
+        assertEquals("profile", cache.get(ID, ""));
+    }
+
+    @Test
+    public void loginIsAnAliasOfTheId() {
+        cache.put(LOGIN, "", "profile", ID, cache.version(LOGIN));
+        cache.put(ID, "groups", "[]", null, cache.version(ID));
+        assertEquals("profile", cache.get(ID, ""));
+        assertEquals("[]", cache.get(LOGIN, "groups"));
+
+        cache.invalidate(ID);
+        assertNull(cache.get(LOGIN, ""));
+        assertNull(cache.get(LOGIN, "groups"));
+        assertEquals(0, cache.getStatistics().get("size"));
+    }
+
+    @Test
+    public void invalidatingByLoginRemovesTheUser() {
+        cache.put(LOGIN, "", "profile", ID, cache.version(LOGIN));
+        cache.invalidate(LOGIN);
+        assertNull(cache.get(ID, ""));
+    }
+
+    @Test
+    public void readByUnknownLoginIsDroppedAfterAnyInvalidation() {
+        UserCache.Version version = cache.version(LOGIN);
+        cache.invalidate(ID);
+        cache.put(LOGIN, "", "stale", ID, version);
+        assertNull(cache.get(LOGIN, ""));
+    }
+
+    @Test
+    public void resourcesOfUnknownLoginAreNotCached() {
+        cache.put(LOGIN, "groups", "[]", null, cache.version(LOGIN));
+        assertNull(cache.get(LOGIN, "groups"));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedUsers() {
+        cache.put(ID, "", "profile", ID, cache.version(ID));
+        cache.put(ID, "groups", "[]", null, cache.version(ID));
+        cache.put(OTHER, "", "profile", OTHER, cache.version(OTHER));
+        cache.put(OTHER, "groups", "[]", null, cache.version(OTHER));
+        cache.get(ID, "");
+        cache.put("00u00000000000000003", "", "profile", "00u00000000000000003", cache.version("00u00000000000000003"));
+        assertEquals("profile", cache.get(ID, ""));
+        assertNull(cache.get(OTHER, ""));
+        assertEquals(3, cache.getStatistics().get("size"));
+        assertEquals(2L, cache.getStatistics().get("evictions"));
+    }
+
+    @Test
+    public void expiredValuesAreNotReturned() {
+        cache = new UserCache(4, -1);
+        cache.put(ID, "", "profile", ID, cache.version(ID));
+        assertNull(cache.get(ID, ""));
+        assertEquals(0, cache.getStatistics().get("size"));
+    }
+
+    @Test
+    public void userIds() {
+        assertTrue(UserCache.isUserId(ID));
+        assertTrue(UserCache.isUserId("acme.okta.com/" + ID));
+        assertFalse(UserCache.isUserId(LOGIN));
+        assertFalse(UserCache.isUserId("user1"));
+    }
+}
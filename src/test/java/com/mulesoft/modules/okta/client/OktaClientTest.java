@@ -0,0 +1,100 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mulesoft.modules.okta.metrics.OperationMetrics;
+import com.mulesoft.modules.okta.stub.OktaStubServer;
+
+public class OktaClientTest {
+
+    private OktaStubServer server;
+    private OktaClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new OktaStubServer(20).start();
+        client = new OktaClient(server.createConfig());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        server.stop();
+    }
+
+    @Test
+    public void connectionsAreReturnedToThePool() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            assertTrue(client.get(client.url("/users/" + OktaStubServer.userId(i), null)).contains(OktaStubServer.userId(i)));
+        }
+        Map<String, Object> pool = client.getPoolStatistics();
+        assertEquals(0, pool.get("leased"));
+        // sequential calls keep reusing the one kept-alive connection
+        assertEquals(1, pool.get("available"));
+    }
+
+    @Test
+    public void orgsShareThePool() throws Exception {
+        OktaClient other = client.forOrg(server.getHost(), "other-token");
+        assertEquals("SSWS other-token", other.getApiToken());
+        other.get(other.url("/users/" + OktaStubServer.userId(1), null));
+        other.close();
+        assertEquals(1, client.getPoolStatistics().get("available"));
+        // closing an org client leaves the shared pool open
+        client.get(client.url("/users/" + OktaStubServer.userId(2), null));
+    }
+
+    @Test
+    public void errorStatusIsReported() throws Exception {
+        try {
+            client.get(client.url("/users/nobody", null));
+            fail();
+        } catch (OktaException e) {
+            assertEquals(404, e.getStatus());
+        }
+        assertEquals(0, client.getPoolStatistics().get("leased"));
+    }
+
+    @Test
+    public void callIsInFlightUntilItsBodyIsRead() throws Exception {
+        String url = client.url("/users/" + OktaStubServer.userId(1), null);
+        OperationMetrics operation = client.getMetrics().operation("GET", "/users/" + OktaStubServer.userId(1));
+        OktaResponse response = client.execute("GET", url, null);
+        // the headers are in, the body is not read yet
+        assertEquals(1, operation.getInFlight());
+        assertEquals(1, bulkheadInFlight());
+        assertTrue(response.asString().contains(OktaStubServer.userId(1)));
+        assertEquals(0, operation.getInFlight());
+        assertEquals(0, bulkheadInFlight());
+        assertEquals(1L, operation.getRequests());
+    }
+
+    @Test
+    public void urls() {
+        Map<String, Object> query = new LinkedHashMap<String, Object>();
+        query.put("q", "Jane Doe");
+        query.put("filter", null);
+        query.put("limit", 10);
+        assertTrue(client.url("/users", query).endsWith("/api/v1/users?q=Jane+Doe&limit=10"));
+        assertEquals("jane%20doe%40example.com", OktaClient.segment("jane doe@example.com"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private int bulkheadInFlight() {
+        Map<String, Object> users = (Map<String, Object>) client.getGuard().getStatus().get("users");
+        return (Integer) ((Map<String, Object>) users.get("bulkhead")).get("inFlight");
+    }
+}
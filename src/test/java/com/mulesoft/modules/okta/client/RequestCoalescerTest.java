@@ -0,0 +1,137 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestCoalescerTest {
+
+    private RequestCoalescer coalescer;
+    private ExecutorService callers;
+
+    @Before
+    public void setUp() {
+        coalescer = new RequestCoalescer();
+        callers = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    public void concurrentCallsWithTheSameKeyShareOneCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingCall call = new BlockingCall(release, "user");
+        Future<String> first = callers.submit(caller("/users/00u1", call));
+        assertTrue(call.started.await(5, TimeUnit.SECONDS));
+        Future<String> second = callers.submit(caller("/users/00u1", call));
+        waitForWaiters();
+        release.countDown();
+        assertEquals("user", first.get());
+        assertEquals("user", second.get());
+        assertEquals(1, call.calls.get());
+        assertEquals(0, coalescer.getInFlight());
+    }
+
+    @Test
+    public void differentKeysAreNotShared() throws Exception {
+        CountDownLatch release = new CountDownLatch(0);
+        BlockingCall call = new BlockingCall(release, "user");
+        coalescer.execute("/users/00u1", call);
+        coalescer.execute("/users/00u2", call);
+        assertEquals(2, call.calls.get());
+    }
+
+    @Test
+    public void completedCallIsNotReused() throws Exception {
+        BlockingCall call = new BlockingCall(new CountDownLatch(0), "user");
+        coalescer.execute("/users/00u1", call);
+        coalescer.execute("/users/00u1", call);
+        assertEquals(2, call.calls.get());
+    }
+
+    @Test
+    public void failureIsSharedWithTheWaiters() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final IOException failure = new IOException("Connection reset");
+        BlockingCall call = new BlockingCall(release, null) {
+            @Override
+            public String call() throws Exception {
+                super.call();
+                throw failure;
+            }
+        };
+        Future<String> first = callers.submit(caller("/users/00u1", call));
+        assertTrue(call.started.await(5, TimeUnit.SECONDS));
+        Future<String> second = callers.submit(caller("/users/00u1", call));
+        waitForWaiters();
+        release.countDown();
+        expectFailure(first, failure);
+        expectFailure(second, failure);
+        assertEquals(1, call.calls.get());
+    }
+
+    private static void expectFailure(Future<String> result, Exception failure) throws InterruptedException {
+        try {
+            result.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    private Callable<String> caller(final String key, final Callable<String> call) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return coalescer.execute(key, call);
+            }
+        };
+    }
+
+    private static void waitForWaiters() throws InterruptedException {
+        // the second caller has no hook to tell it is waiting; give it time to reach the shared call
+        Thread.sleep(100);
+    }
+
+    private static class BlockingCall implements Callable<String> {
+        private final CountDownLatch release;
+        private final String result;
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private BlockingCall(CountDownLatch release, String result) {
+            this.release = release;
+            this.result = result;
+        }
+
+        @Override
+        public String call() throws Exception {
+            calls.incrementAndGet();
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return result;
+        }
+    }
+}
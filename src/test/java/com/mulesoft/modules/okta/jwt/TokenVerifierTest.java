@@ -0,0 +1,164 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.jwt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TokenVerifierTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String ISSUER = "https://example.okta.com/oauth2/default";
+
+    private KeyPair key;
+    private String keySet;
+    private int fetches;
+    private TokenVerifier verifier;
+
+    @Before
+    public void setUp() throws Exception {
+        key = generateKey();
+        keySet = keySet("k1", key);
+        verifier = verifier(30000);
+    }
+
+    @Test
+    public void validToken() throws Exception {
+        Map<String, Object> claims = verifier.verify(token("k1", key, ISSUER, "api://default", 300), ISSUER, "api://default", 0);
+        assertEquals("00u1", claims.get("sub"));
+    }
+
+    @Test
+    public void keysAreCached() throws Exception {
+        verifier.verify(token("k1", key, ISSUER, "api://default", 300), ISSUER, null, 0);
+        verifier.verify(token("k1", key, ISSUER, "api://default", 300), ISSUER, null, 0);
+        assertEquals(1, fetches);
+    }
+
+    @Test
+    public void rotatedKeyIsLoaded() throws Exception {
+        verifier = verifier(0);
+        verifier.verify(token("k1", key, ISSUER, "api://default", 300), ISSUER, null, 0);
+        KeyPair rotated = generateKey();
+        keySet = keySet("k2", rotated);
+        verifier.verify(token("k2", rotated, ISSUER, "api://default", 300), ISSUER, null, 0);
+        assertEquals(2, fetches);
+    }
+
+    @Test
+    public void unknownKeysDoNotReloadWithinInterval() throws Exception {
+        verifier.verify(token("k1", key, ISSUER, "api://default", 300), ISSUER, null, 0);
+        expectInvalid(token("k9", key, ISSUER, "api://default", 300), ISSUER, null);
+        assertEquals(1, fetches);
+    }
+
+    @Test
+    public void badSignature() throws Exception {
+        expectInvalid(token("k1", generateKey(), ISSUER, "api://default", 300), ISSUER, null);
+    }
+
+    @Test
+    public void expiredToken() throws Exception {
+        expectInvalid(token("k1", key, ISSUER, "api://default", -300), ISSUER, null);
+    }
+
+    @Test
+    public void wrongIssuer() throws Exception {
+        expectInvalid(token("k1", key, "https://evil.example.com", "api://default", 300), ISSUER, null);
+    }
+
+    @Test
+    public void wrongAudience() throws Exception {
+        expectInvalid(token("k1", key, ISSUER, "api://other", 300), ISSUER, "api://default");
+    }
+
+    @Test
+    public void malformedToken() throws Exception {
+        expectInvalid("not.a-token", ISSUER, null);
+    }
+
+    @Test
+    public void malformedSignature() throws Exception {
+        String token = token("k1", key, ISSUER, "api://default", 300);
+        expectInvalid(token.substring(0, token.lastIndexOf('.') + 1) + "not*base64", ISSUER, null);
+    }
+
+    @Test
+    public void missingOrNonStringKeyIdIsRejected() throws Exception {
+        // a key literally named "null" must not verify a token that names no key
+        keySet = keySet("null", key);
+        expectInvalid(signed("{\"alg\":\"RS256\"}", key, ISSUER, "api://default", 300), ISSUER, null);
+        expectInvalid(signed("{\"alg\":\"RS256\",\"kid\":null}", key, ISSUER, "api://default", 300), ISSUER, null);
+        expectInvalid(signed("{\"alg\":\"RS256\",\"kid\":1}", key, ISSUER, "api://default", 300), ISSUER, null);
+        assertEquals(0, fetches);
+    }
+
+    private TokenVerifier verifier(long minReloadIntervalMillis) {
+        return new TokenVerifier(new KeySetCache(new KeySetSource() {
+            @Override
+            public String fetch() throws IOException {
+                fetches++;
+                return keySet;
+            }
+        }, 0, minReloadIntervalMillis));
+    }
+
+    private void expectInvalid(String token, String issuer, String audience) throws IOException {
+        try {
+            verifier.verify(token, issuer, audience, 0);
+            fail("Token should have been rejected");
+        } catch (InvalidTokenException e) {
+            // expected
+        }
+    }
+
+    private static KeyPair generateKey() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    private static String keySet(String keyId, KeyPair key) {
+        RSAPublicKey publicKey = (RSAPublicKey) key.getPublic();
+        return "{\"keys\":[{\"kty\":\"RSA\",\"alg\":\"RS256\",\"use\":\"sig\",\"kid\":\"" + keyId + "\","
+                + "\"n\":\"" + Base64Url.encode(unsigned(publicKey.getModulus().toByteArray())) + "\","
+                + "\"e\":\"" + Base64Url.encode(publicKey.getPublicExponent().toByteArray()) + "\"}]}";
+    }
+
+    private static byte[] unsigned(byte[] bytes) {
+        if (bytes[0] != 0) {
+            return bytes;
+        }
+        byte[] trimmed = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 1, trimmed, 0, trimmed.length);
+        return trimmed;
+    }
+
+    private static String token(String keyId, KeyPair key, String issuer, String audience, long expiresIn) throws Exception {
+        return signed("{\"alg\":\"RS256\",\"kid\":\"" + keyId + "\"}", key, issuer, audience, expiresIn);
+    }
+
+    private static String signed(String headerJson, KeyPair key, String issuer, String audience, long expiresIn) throws Exception {
+        long now = System.currentTimeMillis() / 1000L;
+        String header = Base64Url.encode(headerJson.getBytes(UTF8));
+        String claims = Base64Url.encode(("{\"sub\":\"00u1\",\"iss\":\"" + issuer + "\",\"aud\":\"" + audience + "\","
+                + "\"iat\":" + (now - 10) + ",\"exp\":" + (now + expiresIn) + "}").getBytes(UTF8));
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(key.getPrivate());
+        signature.update((header + "." + claims).getBytes(UTF8));
+        return header + "." + claims + "." + Base64Url.encode(signature.sign());
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ModelReaderTest {
+
+    private static final String USER = "{\"id\":\"00u1\",\"status\":\"ACTIVE\",\"created\":\"2015-06-01T00:00:00.000Z\","
+            + "\"lastLogin\":null,\"credentials\":{\"provider\":{\"type\":\"OKTA\"}},"
+            + "\"profile\":{\"login\":\"user1@example.com\",\"email\":\"user1@example.com\",\"firstName\":\"First\","
+            + "\"department\":\"Engineering\",\"costCenter\":{\"code\":42}},"
+            + "\"_links\":{\"self\":{\"href\":\"https://example.okta.com/api/v1/users/00u1\"}}}";
+
+    @Test
+    public void readsEveryField() throws Exception {
+        User user = ModelReader.readObject(stream(USER), User.class, FieldSelection.ALL);
+        assertEquals("00u1", user.getId());
+        assertEquals("ACTIVE", user.getStatus());
+        assertEquals("2015-06-01T00:00:00.000Z", user.getCreated());
+        assertNull(user.getLastLogin());
+        assertEquals("user1@example.com", user.getProfile().getLogin());
+        assertEquals("First", user.getProfile().getFirstName());
+        assertEquals("Engineering", user.getProfile().getAttribute("department"));
+        assertEquals("{\"department\":\"Engineering\",\"costCenter\":{\"code\":42}}", user.getProfile().getAdditionalAttributesJson());
+    }
+
+    @Test
+    public void readsOnlySelectedFields() throws Exception {
+        User user = ModelReader.readObject(stream(USER), User.class, FieldSelection.parse("id, profile.login"));
+        assertEquals("00u1", user.getId());
+        assertNull(user.getStatus());
+        assertEquals("user1@example.com", user.getProfile().getLogin());
+        assertNull(user.getProfile().getEmail());
+        assertNull(user.getProfile().getAdditionalAttributesJson());
+    }
+
+    @Test
+    public void readsLists() throws Exception {
+        List<Group> groups = ModelReader.readList(stream("[{\"id\":\"00g1\",\"type\":\"BUILT_IN\",\"profile\":{\"name\":\"Everyone\"}},"
+                + "{\"id\":\"00g2\",\"type\":\"OKTA_GROUP\",\"profile\":{\"name\":\"Team\"}}]"), Group.class, FieldSelection.parse("id,profile.name"));
+        assertEquals(2, groups.size());
+        assertEquals("00g2", groups.get(1).getId());
+        assertEquals("Team", groups.get(1).getName());
+        assertNull(groups.get(1).getType());
+        assertTrue(ModelReader.readList(stream("[]"), Group.class, FieldSelection.ALL).isEmpty());
+    }
+
+    @Test
+    public void rejectsUnexpectedJson() throws Exception {
+        try {
+            ModelReader.readList(stream(USER), User.class, FieldSelection.ALL);
+            fail();
+        } catch (IOException e) {
+            // not an array
+        }
+        try {
+            ModelReader.readObject(stream("[]"), User.class, FieldSelection.ALL);
+            fail();
+        } catch (IOException e) {
+            // not an object
+        }
+    }
+
+    @Test
+    public void fieldSelection() {
+        assertSame(FieldSelection.ALL, FieldSelection.parse(null));
+        assertSame(FieldSelection.ALL, FieldSelection.parse(" "));
+        FieldSelection fields = FieldSelection.parse("id,profile.login");
+        assertTrue(fields.includes("id"));
+        assertTrue(fields.includes("profile"));
+        assertFalse(fields.includes("status"));
+        assertTrue(fields.nested("profile").includes("login"));
+        assertFalse(fields.nested("profile").includes("email"));
+        // selecting an object selects all of its fields
+        assertSame(FieldSelection.ALL, FieldSelection.parse("profile").nested("profile"));
+    }
+
+    private static InputStream stream(String json) throws IOException {
+        return new ByteArrayInputStream(json.getBytes("UTF-8"));
+    }
+}
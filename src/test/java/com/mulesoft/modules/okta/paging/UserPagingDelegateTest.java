@@ -0,0 +1,90 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.paging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mulesoft.modules.okta.client.OktaClient;
+import com.mulesoft.modules.okta.model.JsonValues;
+import com.mulesoft.modules.okta.stub.OktaStubServer;
+
+public class UserPagingDelegateTest {
+
+    private OktaStubServer server;
+    private OktaClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new OktaStubServer(250).setPageSize(100).start();
+        client = new OktaClient(server.createConfig());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        server.stop();
+    }
+
+    @Test
+    public void followsTheNextLinks() throws Exception {
+        UserPagingDelegate delegate = new UserPagingDelegate(client, firstUrl(), false);
+        List<String> ids = readAll(delegate);
+        assertEquals(250, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(OktaStubServer.userId(i), ids.get(i));
+        }
+        assertNull(delegate.getNextUrl());
+        assertEquals(3, server.getRequestCount());
+        assertEquals(-1, delegate.getTotalResults(null));
+    }
+
+    @Test
+    public void prefetchingReturnsTheSameUsers() throws Exception {
+        UserPagingDelegate delegate = new UserPagingDelegate(client, firstUrl(), true);
+        try {
+            List<String> ids = readAll(delegate);
+            assertEquals(250, ids.size());
+            assertEquals(OktaStubServer.userId(249), ids.get(249));
+            assertEquals(3, server.getRequestCount());
+        } finally {
+            delegate.close();
+        }
+    }
+
+    @Test
+    public void closedDelegateReturnsNoMorePages() throws Exception {
+        UserPagingDelegate delegate = new UserPagingDelegate(client, firstUrl(), true);
+        assertEquals(100, delegate.getPage(null).size());
+        delegate.close();
+        assertTrue(delegate.getPage(null).isEmpty());
+    }
+
+    private String firstUrl() {
+        Map<String, Object> params = new LinkedHashMap<String, Object>();
+        params.put("limit", 100);
+        return client.url("/users", params);
+    }
+
+    private static List<String> readAll(UserPagingDelegate delegate) throws Exception {
+        List<String> ids = new ArrayList<String>();
+        for (List<String> page = delegate.getPage(null); !page.isEmpty(); page = delegate.getPage(null)) {
+            for (String user : page) {
+                ids.add(JsonValues.readField(user, "id"));
+            }
+        }
+        return ids;
+    }
+}
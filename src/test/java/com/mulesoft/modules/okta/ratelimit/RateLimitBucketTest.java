@@ -0,0 +1,91 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.ratelimit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.mulesoft.modules.okta.resilience.RetryPolicy;
+
+public class RateLimitBucketTest {
+
+    private static final long MAX_WAIT = 1500;
+
+    @Test
+    public void unknownBudgetDoesNotWait() {
+        RateLimitBucket bucket = new RateLimitBucket(true);
+        assertEquals(0, bucket.reserve(0, MAX_WAIT));
+        assertEquals(0, bucket.reserve(0, MAX_WAIT));
+    }
+
+    @Test
+    public void exhaustedBudgetWaitsForTheReset() {
+        RateLimitBucket bucket = new RateLimitBucket(false);
+        bucket.update(10, 2, 10);
+        assertEquals(0, bucket.reserve(0, Long.MAX_VALUE));
+        assertEquals(0, bucket.reserve(0, Long.MAX_VALUE));
+        assertEquals(10000, bucket.reserve(0, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void smoothingSpreadsTheBudgetUntilTheReset() {
+        RateLimitBucket bucket = new RateLimitBucket(true);
+        bucket.update(10, 4, 4);
+        assertEquals(0, bucket.reserve(0, MAX_WAIT));
+        // 4 calls over 4 s: the second one is due after 1 s, then the 3 left are spread over the 4 s left
+        assertEquals(1000, bucket.reserve(0, MAX_WAIT));
+        assertEquals(1333, bucket.reserve(1000, MAX_WAIT));
+    }
+
+    @Test
+    public void rejectedCallTakesNothing() {
+        RateLimitBucket bucket = new RateLimitBucket(true);
+        bucket.update(10, 4, 4);
+        bucket.reserve(0, MAX_WAIT);
+        bucket.reserve(0, MAX_WAIT);
+        long wait = bucket.reserve(0, MAX_WAIT);
+        assertEquals(2333, wait);
+        // the rejection neither spends the budget nor pushes the next slot
+        assertEquals(wait, bucket.reserve(0, MAX_WAIT));
+        assertEquals(2L, bucket.getStatus().get("remaining"));
+        assertEquals(2L, bucket.getStatus().get("requests"));
+        assertEquals(2L, bucket.getStatus().get("rejected"));
+        assertEquals(1333, bucket.reserve(1000, MAX_WAIT));
+    }
+
+    @Test
+    public void overdrawnBudgetKeepsPacing() {
+        RateLimitBucket bucket = new RateLimitBucket(false);
+        bucket.update(10, 0, 1);
+        assertEquals(1000, bucket.reserve(0, MAX_WAIT));
+        assertEquals(1000, bucket.reserve(0, MAX_WAIT));
+    }
+
+    @Test
+    public void budgetIsRestoredWhenTheWindowIsReset() {
+        RateLimitBucket bucket = new RateLimitBucket(false);
+        bucket.update(10, 0, 1);
+        assertEquals(0, bucket.reserve(1000, MAX_WAIT));
+        assertEquals(9L, bucket.getStatus().get("remaining"));
+    }
+
+    @Test
+    public void schedulerRejectionIsNotRetried() throws Exception {
+        RateLimitScheduler scheduler = new RateLimitScheduler(false, 0);
+        long reset = System.currentTimeMillis() / 1000L + 60;
+        scheduler.update("users", "10", "0", String.valueOf(reset));
+        try {
+            scheduler.reserve("users");
+            fail();
+        } catch (RateLimitExceededException e) {
+            assertEquals("users", e.getFamily());
+            assertFalse(RetryPolicy.isTransient(e));
+            assertFalse(RetryPolicy.isSafeToResend(e));
+        }
+    }
+}
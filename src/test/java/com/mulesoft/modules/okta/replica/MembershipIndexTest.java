@@ -0,0 +1,76 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.replica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class MembershipIndexTest {
+
+    private static final String EVERYONE = "{\"id\":\"00g1\",\"profile\":{\"name\":\"Everyone\"}}";
+    private static final String TEAM = "{\"id\":\"00g2\",\"profile\":{\"name\":\"Team\"}}";
+
+    private MembershipIndex index;
+
+    @Before
+    public void setUp() {
+        index = new MembershipIndex();
+        index.addUser("00u1", "user1@example.com");
+        index.addGroup("00g1", EVERYONE);
+        index.addMember("00u1", "00g1");
+    }
+
+    @Test
+    public void groupsAreAnsweredByIdOrLogin() {
+        assertEquals("[" + EVERYONE + "]", index.getGroupsJson("00u1"));
+        assertEquals("[" + EVERYONE + "]", index.getGroupsJson("user1@example.com"));
+        assertTrue(index.isMember("user1@example.com", "00g1"));
+        assertNull(index.getGroupsJson("00u2"));
+    }
+
+    @Test
+    public void groupKnownOnlyByIdIsNotAnswered() {
+        index.addMember("00u1", "00g2");
+        assertFalse(index.hasGroupJson("00g2"));
+        assertTrue(index.isMember("00u1", "00g2"));
+        // the caller reads the groups from Okta rather than getting a group without its profile
+        assertNull(index.getGroupsJson("00u1"));
+
+        index.addGroup("00g2", TEAM);
+        assertTrue(index.hasGroupJson("00g2"));
+        assertEquals("[" + EVERYONE + "," + TEAM + "]", index.getGroupsJson("00u1"));
+    }
+
+    @Test
+    public void removedMembershipIsNotAnswered() {
+        index.addGroup("00g2", TEAM);
+        index.addMember("00u1", "00g2");
+        index.removeMember("00u1", "00g1");
+        assertEquals("[" + TEAM + "]", index.getGroupsJson("00u1"));
+        assertFalse(index.isMember("00u1", "00g1"));
+    }
+
+    @Test
+    public void removedUserIsUnknown() {
+        index.removeUser("00u1", "user1@example.com");
+        assertFalse(index.containsUser("00u1"));
+        assertFalse(index.containsUser("user1@example.com"));
+        assertNull(index.getGroupsJson("user1@example.com"));
+        assertEquals(0, index.getUserCount());
+    }
+
+    @Test
+    public void groupIdsAreInternedOnce() {
+        assertEquals(0, index.addGroup("00g1", null));
+        assertEquals(1, index.addGroup("00g2", null));
+        assertEquals(2, index.getGroupCount());
+        assertEquals("00g2", index.getGroupId(1));
+    }
+}
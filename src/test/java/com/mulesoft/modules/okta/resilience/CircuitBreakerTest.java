@@ -0,0 +1,92 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.resilience;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() {
+        breaker = new CircuitBreaker(10, 4, 50, 80, 1000, 100);
+    }
+
+    @Test
+    public void staysClosedBelowMinimumCalls() {
+        call(true, 10);
+        call(true, 10);
+        call(true, 10);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void opensOnFailureRate() {
+        call(true, 10);
+        call(false, 10);
+        call(true, 10);
+        call(false, 10);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allow(50));
+    }
+
+    @Test
+    public void opensOnSlowCalls() {
+        for (int i = 0; i < 4; i++) {
+            call(false, 2000);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void closesAfterSuccessfulTrials() {
+        for (int i = 0; i < 4; i++) {
+            call(true, 10);
+        }
+        assertTrue(breaker.allow(200));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.record(false, 10, 200);
+        for (int i = 0; i < 2; i++) {
+            assertTrue(breaker.allow(200));
+            breaker.record(false, 10, 200);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void reopensOnFailedTrial() {
+        for (int i = 0; i < 4; i++) {
+            call(true, 10);
+        }
+        assertTrue(breaker.allow(200));
+        breaker.record(true, 10, 200);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allow(250));
+    }
+
+    @Test
+    public void limitsTrialCalls() {
+        for (int i = 0; i < 4; i++) {
+            call(true, 10);
+        }
+        assertTrue(breaker.allow(200));
+        assertTrue(breaker.allow(200));
+        assertTrue(breaker.allow(200));
+        assertFalse(breaker.allow(200));
+        breaker.cancel();
+        assertTrue(breaker.allow(200));
+    }
+
+    private void call(boolean failed, long latency) {
+        assertTrue(breaker.allow(0));
+        breaker.record(failed, latency, 0);
+    }
+}
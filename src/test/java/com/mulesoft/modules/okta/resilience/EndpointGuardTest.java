@@ -0,0 +1,104 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.resilience;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mulesoft.modules.okta.config.OktaConnectorConfig;
+
+public class EndpointGuardTest {
+
+    private EndpointGuard guard;
+    private EndpointGuard other;
+
+    @Before
+    public void setUp() {
+        OktaConnectorConfig config = new OktaConnectorConfig();
+        config.setUsersConcurrency(2);
+        config.setAsyncConcurrency(1);
+        config.setBulkheadMaxWait(0);
+        config.setCircuitBreakerEnabled(true);
+        config.setCircuitBreakerWindowSize(10);
+        config.setCircuitBreakerMinimumCalls(4);
+        config.setCircuitBreakerFailureRate(50);
+        config.setCircuitBreakerSlowCallRate(80);
+        config.setCircuitBreakerSlowCallDuration(5000);
+        config.setCircuitBreakerOpenDuration(30);
+        guard = new EndpointGuard(config);
+        other = guard.forOrg(config);
+    }
+
+    @Test
+    public void compartments() {
+        assertEquals(EndpointGuard.LIFECYCLE, EndpointGuard.name("/users/00u1/lifecycle/activate"));
+        assertEquals(EndpointGuard.CREDENTIALS, EndpointGuard.name("/users/00u1/credentials/change_password"));
+        assertEquals(EndpointGuard.USERS, EndpointGuard.name("/users/00u1"));
+        assertEquals(EndpointGuard.SESSIONS, EndpointGuard.name("/sessions/102abc"));
+        assertEquals(EndpointGuard.OTHER, EndpointGuard.name("/logs"));
+    }
+
+    @Test
+    public void orgsShareBulkheads() throws Exception {
+        guard.compartment("/users").enter();
+        other.compartment("/users").enter();
+        try {
+            other.compartment("/users").enter();
+            fail();
+        } catch (CallRejectedException e) {
+            assertEquals(EndpointGuard.USERS, e.getCompartment());
+        }
+        guard.compartment("/users").exit(false, 10);
+        other.compartment("/users").enter();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void orgsHaveTheirOwnCircuitBreakers() throws Exception {
+        EndpointGuard.Compartment degraded = other.compartment("/users");
+        for (int i = 0; i < 4; i++) {
+            degraded.enter();
+            degraded.exit(true, 10);
+        }
+        try {
+            degraded.enter();
+            fail();
+        } catch (CallRejectedException e) {
+            // open for the degraded org only
+        }
+        EndpointGuard.Compartment healthy = guard.compartment("/users");
+        healthy.enter();
+        healthy.exit(false, 10);
+        assertEquals("CLOSED", ((Map<String, Object>) guard.getStatus().get(EndpointGuard.USERS)).get("state"));
+        assertEquals("OPEN", ((Map<String, Object>) other.getStatus().get(EndpointGuard.USERS)).get("state"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void asyncCallsHaveTheirOwnBulkheadsAndShareTheBreakers() throws Exception {
+        guard.compartment("/users").enter();
+        guard.compartment("/users").enter();
+        EndpointGuard.Compartment async = guard.asyncCompartment("/users");
+        async.enter();
+        try {
+            async.enter();
+            fail();
+        } catch (CallRejectedException e) {
+            assertEquals(EndpointGuard.USERS, e.getCompartment());
+        }
+        async.exit(true, 10);
+        for (int i = 0; i < 3; i++) {
+            async.enter();
+            async.exit(true, 10);
+        }
+        // the failures of the async calls opened the breaker of the blocking ones
+        assertEquals("OPEN", ((Map<String, Object>) guard.getStatus().get(EndpointGuard.USERS)).get("state"));
+    }
+}
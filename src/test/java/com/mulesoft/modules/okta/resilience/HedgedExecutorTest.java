@@ -0,0 +1,108 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.resilience;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HedgedExecutorTest {
+
+    private HedgedExecutor executor;
+
+    @Before
+    public void setUp() {
+        executor = new HedgedExecutor(95, 20);
+    }
+
+    @After
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    public void notHedgedUntilLatenciesAreKnown() throws Exception {
+        assertEquals(-1, executor.getThreshold());
+        assertEquals("ok", executor.execute(new SlowFirstCall(50)));
+        assertEquals(0, executor.getHedgedCount());
+    }
+
+    @Test
+    public void slowCallIsHedged() throws Exception {
+        warmUp();
+        SlowFirstCall call = new SlowFirstCall(5000);
+        long start = System.currentTimeMillis();
+        assertEquals("ok", executor.execute(call));
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertEquals(2, call.calls.get());
+        assertEquals(1, executor.getHedgedCount());
+    }
+
+    @Test
+    public void fastCallIsNotHedged() throws Exception {
+        warmUp();
+        SlowFirstCall call = new SlowFirstCall(0);
+        assertEquals("ok", executor.execute(call));
+        assertEquals(1, call.calls.get());
+        assertEquals(0, executor.getHedgedCount());
+    }
+
+    @Test
+    public void failsWhenBothAttemptsFail() throws Exception {
+        warmUp();
+        final AtomicInteger calls = new AtomicInteger();
+        try {
+            executor.execute(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    if (calls.incrementAndGet() == 1) {
+                        Thread.sleep(100);
+                    }
+                    throw new IOException("attempt " + calls.get());
+                }
+            });
+            fail();
+        } catch (IOException e) {
+            assertEquals(2, calls.get());
+        }
+    }
+
+    private void warmUp() throws IOException {
+        for (int i = 0; i < 64; i++) {
+            executor.execute(new Callable<String>() {
+                @Override
+                public String call() {
+                    return "ok";
+                }
+            });
+        }
+        assertTrue(executor.getThreshold() >= 0);
+    }
+
+    private static class SlowFirstCall implements Callable<String> {
+        private final long firstDelayMillis;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private SlowFirstCall(long firstDelayMillis) {
+            this.firstDelayMillis = firstDelayMillis;
+        }
+
+        @Override
+        public String call() throws Exception {
+            if (calls.incrementAndGet() == 1 && firstDelayMillis > 0) {
+                Thread.sleep(firstDelayMillis);
+            }
+            return "ok";
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.resilience;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.junit.Test;
+
+import com.mulesoft.modules.okta.client.OktaException;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void transientFailures() {
+        assertTrue(RetryPolicy.isTransient(status(429)));
+        assertTrue(RetryPolicy.isTransient(status(500)));
+        assertTrue(RetryPolicy.isTransient(status(503)));
+        assertTrue(RetryPolicy.isTransient(new ConnectException("Connection refused")));
+        assertFalse(RetryPolicy.isTransient(status(400)));
+        assertFalse(RetryPolicy.isTransient(status(404)));
+        assertFalse(RetryPolicy.isTransient(new CallRejectedException(EndpointGuard.USERS, "open")));
+        assertFalse(RetryPolicy.isTransient(new InterruptedIOException()));
+        // the policy only retries idempotent calls, so a slow answer is retried
+        assertTrue(RetryPolicy.isTransient(new SocketTimeoutException("Read timed out")));
+        assertTrue(RetryPolicy.isTransient(new ConnectTimeoutException("Connect timed out")));
+        assertFalse(RetryPolicy.isTransient(new IllegalStateException()));
+    }
+
+    @Test
+    public void onlyUnprocessedCallsAreSafeToResend() {
+        assertTrue(RetryPolicy.isSafeToResend(status(429)));
+        assertTrue(RetryPolicy.isSafeToResend(status(503)));
+        assertTrue(RetryPolicy.isSafeToResend(new ConnectException("Connection refused")));
+        assertTrue(RetryPolicy.isSafeToResend(new NoHttpResponseException("The target server failed to respond")));
+        assertFalse(RetryPolicy.isSafeToResend(status(500)));
+        assertFalse(RetryPolicy.isSafeToResend(new SocketTimeoutException("Read timed out")));
+        assertFalse(RetryPolicy.isSafeToResend(new CallRejectedException(EndpointGuard.USERS, "open")));
+    }
+
+    @Test
+    public void transientFailuresAreRetried() throws Exception {
+        FailingCall call = new FailingCall(2, status(503));
+        assertEquals("ok", new RetryPolicy(3, 1, 1).execute(call));
+        assertEquals(3, call.calls.get());
+    }
+
+    @Test
+    public void timeoutIsRetried() throws Exception {
+        FailingCall call = new FailingCall(1, new SocketTimeoutException("Read timed out"));
+        assertEquals("ok", new RetryPolicy(3, 1, 1).execute(call));
+        assertEquals(2, call.calls.get());
+    }
+
+    @Test
+    public void permanentFailureIsNotRetried() throws Exception {
+        OktaException notFound = status(404);
+        FailingCall call = new FailingCall(5, notFound);
+        try {
+            new RetryPolicy(3, 1, 1).execute(call);
+            fail();
+        } catch (OktaException e) {
+            assertSame(notFound, e);
+        }
+        assertEquals(1, call.calls.get());
+    }
+
+    @Test
+    public void givesUpAfterMaxRetries() throws Exception {
+        FailingCall call = new FailingCall(5, status(503));
+        try {
+            new RetryPolicy(2, 1, 1).execute(call);
+            fail();
+        } catch (OktaException e) {
+            assertEquals(503, e.getStatus());
+        }
+        assertEquals(3, call.calls.get());
+    }
+
+    @Test
+    public void checkedFailureIsWrapped() throws Exception {
+        try {
+            new RetryPolicy(2, 1, 1).execute(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    throw new Exception("not I/O");
+                }
+            });
+            fail();
+        } catch (IOException e) {
+            assertEquals("not I/O", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void backoffIsExponentialJitteredAndCapped() {
+        RetryPolicy policy = new RetryPolicy(10, 100, 1000);
+        for (int i = 0; i < 100; i++) {
+            assertBetween(50, 100, policy.backoff(0, status(503)));
+            assertBetween(100, 200, policy.backoff(1, status(503)));
+            assertBetween(500, 1000, policy.backoff(5, status(503)));
+            assertBetween(500, 1000, policy.backoff(60, status(503)));
+        }
+    }
+
+    @Test
+    public void retryAfterIsHonored() {
+        RetryPolicy policy = new RetryPolicy(3, 100, 1000);
+        assertEquals(5000, policy.backoff(0, new OktaException(429, "GET", "/users", "{}", 5000)));
+        assertBetween(50, 100, policy.backoff(0, new OktaException(429, "GET", "/users", "{}", 10)));
+    }
+
+    private static void assertBetween(long min, long max, long value) {
+        assertTrue(value + " not in [" + min + ", " + max + "]", value >= min && value <= max);
+    }
+
+    private static OktaException status(int status) {
+        return new OktaException(status, "GET", "/users/00u1", "{}");
+    }
+
+    private static class FailingCall implements Callable<String> {
+        private final int failures;
+        private final IOException failure;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private FailingCall(int failures, IOException failure) {
+            this.failures = failures;
+            this.failure = failure;
+        }
+
+        @Override
+        public String call() throws Exception {
+            if (calls.incrementAndGet() <= failures) {
+                throw failure;
+            }
+            return "ok";
+        }
+    }
+}
@@ -0,0 +1,352 @@
+/**
+ * (c) 2003-2014 MuleSoft, Inc. The software in this package is published under the terms of the CPAL v1.0 license,
+ * a copy of which has been included with this distribution in the LICENSE.md file.
+ */
+package com.mulesoft.modules.okta.stub;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.mulesoft.modules.okta.config.OktaConnectorConfig;
+import com.mulesoft.modules.okta.metrics.MetricsLevel;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-in for an Okta org, serving the users, lifecycle and sessions
+ * endpoints over plain HTTP. Latency, page size and 429 answers are configurable,
+ * so the connector can be tested and benchmarked offline.
+ *
+ * @author MuleSoft, Inc.
+ */
+public class OktaStubServer implements HttpHandler {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String PREFIX = "/api/v1";
+
+    private final int users;
+    private final ConcurrentMap<String, String> statuses = new ConcurrentHashMap<String, String>();
+    private final ConcurrentMap<String, String> sessions = new ConcurrentHashMap<String, String>();
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private volatile long latencyMillis;
+    private volatile int pageSize = 200;
+    private volatile int rateLimitEvery;
+    private volatile String lastRequestBody;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * @param users number of users in the org
+     */
+    public OktaStubServer(int users) {
+        this.users = users;
+    }
+
+    /**
+     * @param latencyMillis delay added to every answer
+     */
+    public OktaStubServer setLatency(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+        return this;
+    }
+
+    /**
+     * @param pageSize largest number of users returned per page, whatever the requested limit
+     */
+    public OktaStubServer setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * @param rateLimitEvery answer 429 to every n-th request, 0 never to
+     */
+    public OktaStubServer setRateLimitEvery(int rateLimitEvery) {
+        this.rateLimitEvery = rateLimitEvery;
+        return this;
+    }
+
+    public OktaStubServer start() throws IOException {
+        // without it, delayed ACKs add 40ms to every keep-alive call
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext(PREFIX, this);
+        server.start();
+        return this;
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return host and port to configure the connector with
+     */
+    public String getHost() {
+        return "localhost:" + server.getAddress().getPort();
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * @return body of the last request, empty when it had none
+     */
+    public String getLastRequestBody() {
+        return lastRequestBody;
+    }
+
+    /**
+     * @return a configuration pointing to this server, with every setting at its default
+     */
+    public OktaConnectorConfig createConfig() {
+        OktaConnectorConfig config = new OktaConnectorConfig();
+        config.setVersion("v1");
+        config.setUserCacheEnabled(false);
+        config.setUserCacheMaxEntries(1000);
+        config.setUserCacheTtl(60);
+        config.setCoalesceRequests(true);
+        config.setSessionCacheEnabled(false);
+        config.setSessionCacheMaxEntries(10000);
+        config.setSessionRefreshFraction(0.5);
+        config.setJwksRefreshInterval(3600);
+        config.setGroupReplicaEnabled(false);
+        config.setGroupReplicaSyncInterval(60);
+        config.setGroupReplicaRebuildInterval(86400);
+        config.setRateLimitEnabled(true);
+        config.setRateLimitSmoothing(true);
+        config.setRateLimitMaxWait(30);
+        config.setMaxConnections(50);
+        config.setConnectTimeout(10000);
+        config.setReadTimeout(60000);
+        config.setKeepAlive(30);
+        config.setMaxRetries(2);
+        config.setRetryInitialBackoff(200);
+        config.setRetryMaxBackoff(10000);
+        config.setHedgingEnabled(false);
+        config.setHedgingPercentile(95);
+        config.setHedgingMinDelay(50);
+        config.setUsersConcurrency(20);
+        config.setLifecycleConcurrency(10);
+        config.setCredentialsConcurrency(10);
+        config.setAuthnConcurrency(20);
+        config.setSessionsConcurrency(20);
+        config.setAsyncConcurrency(1000);
+        config.setBulkheadMaxWait(1000);
+        config.setCircuitBreakerEnabled(true);
+        config.setCircuitBreakerWindowSize(100);
+        config.setCircuitBreakerMinimumCalls(20);
+        config.setCircuitBreakerFailureRate(50);
+        config.setCircuitBreakerSlowCallRate(80);
+        config.setCircuitBreakerSlowCallDuration(5000);
+        config.setCircuitBreakerOpenDuration(30);
+        config.setMetricsLevel(MetricsLevel.COUNTERS);
+        config.setMetricsJmxEnabled(true);
+        config.setProfileStateMaxEntries(10000);
+        config.setProfileStateTtl(3600);
+        config.setProtocol("http");
+        config.setHost(getHost());
+        config.setApiToken("stub");
+        return config;
+    }
+
+    /**
+     * @param index position of the user in the org
+     * @return id of the user
+     */
+    public static String userId(int index) {
+        return String.format("00u%017d", index);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        long count = requests.incrementAndGet();
+        try {
+            lastRequestBody = read(exchange.getRequestBody());
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            long reset = System.currentTimeMillis() / 1000 + 60;
+            exchange.getResponseHeaders().add("X-Rate-Limit-Limit", "100000");
+            if (rateLimitEvery > 0 && count % rateLimitEvery == 0) {
+                exchange.getResponseHeaders().add("X-Rate-Limit-Remaining", "0");
+                exchange.getResponseHeaders().add("X-Rate-Limit-Reset", String.valueOf(System.currentTimeMillis() / 1000 + 1));
+                send(exchange, 429, "{\"errorCode\":\"E0000047\",\"errorSummary\":\"API call exceeded rate limit due to too many requests.\"}");
+                return;
+            }
+            exchange.getResponseHeaders().add("X-Rate-Limit-Remaining", "99999");
+            exchange.getResponseHeaders().add("X-Rate-Limit-Reset", String.valueOf(reset));
+            route(exchange, exchange.getRequestMethod(), exchange.getRequestURI().getRawPath().substring(PREFIX.length()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange, String method, String path) throws IOException {
+        String[] segments = path.substring(1).split("/");
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        if ("users".equals(segments[0])) {
+            if (segments.length == 1) {
+                if ("GET".equals(method)) {
+                    listUsers(exchange, query);
+                } else {
+                    send(exchange, 200, user(users + created.incrementAndGet()));
+                }
+                return;
+            }
+            int index = index(URLDecoder.decode(segments[1], "UTF-8"));
+            if (index < 0) {
+                send(exchange, 404, "{\"errorCode\":\"E0000007\",\"errorSummary\":\"Not found: Resource not found: " + segments[1] + " (User)\"}");
+            } else if (segments.length == 2) {
+                send(exchange, 200, user(index));
+            } else if ("groups".equals(segments[2])) {
+                send(exchange, 200, "[{\"id\":\"00g1\",\"type\":\"BUILT_IN\",\"profile\":{\"name\":\"Everyone\"}},"
+                        + "{\"id\":\"00g" + (index % 10 + 2) + "\",\"type\":\"OKTA_GROUP\",\"profile\":{\"name\":\"Team " + index % 10 + "\"}}]");
+            } else if ("appLinks".equals(segments[2])) {
+                send(exchange, 200, "[{\"id\":\"00a1\",\"label\":\"Mail\",\"linkUrl\":\"https://example.com/mail\",\"appName\":\"mail\",\"sortOrder\":0}]");
+            } else if ("lifecycle".equals(segments[2]) && segments.length == 4) {
+                lifecycle(exchange, index, segments[3]);
+            } else {
+                send(exchange, 200, "{}");
+            }
+        } else if ("sessions".equals(segments[0])) {
+            if (segments.length == 1) {
+                String id = "102" + Long.toString(requests.get(), 36);
+                String session = session(id);
+                sessions.put(id, session);
+                send(exchange, 200, session);
+            } else if ("DELETE".equals(method)) {
+                sessions.remove(segments[1]);
+                send(exchange, 204, null);
+            } else {
+                String session = session(segments[1]);
+                sessions.put(segments[1], session);
+                send(exchange, 200, session);
+            }
+        } else {
+            send(exchange, 404, "{\"errorCode\":\"E0000022\",\"errorSummary\":\"The endpoint does not support the provided HTTP method\"}");
+        }
+    }
+
+    private void listUsers(HttpExchange exchange, Map<String, String> query) throws IOException {
+        int limit = query.containsKey("limit") ? Math.min(Integer.parseInt(query.get("limit")), pageSize) : pageSize;
+        int start = query.containsKey("after") ? index(query.get("after")) + 1 : 0;
+        int end = Math.min(users, start + limit);
+        StringBuilder page = new StringBuilder("[");
+        for (int i = start; i < end; i++) {
+            page.append(i > start ? "," : "").append(user(i));
+        }
+        page.append(']');
+        if (end < users) {
+            exchange.getResponseHeaders().add("Link", "<http://" + getHost() + PREFIX + "/users?limit=" + limit + "&after=" + userId(end - 1) + ">; rel=\"next\"");
+        }
+        send(exchange, 200, page.toString());
+    }
+
+    private void lifecycle(HttpExchange exchange, int index, String operation) throws IOException {
+        String id = userId(index);
+        if ("activate".equals(operation)) {
+            statuses.put(id, "ACTIVE");
+            send(exchange, 200, "{\"activationUrl\":\"https://example.okta.com/welcome/XE6wE17zmphl3KqAPFxO\"}");
+        } else if ("deactivate".equals(operation)) {
+            statuses.put(id, "DEPROVISIONED");
+            send(exchange, 200, "{}");
+        } else if ("reset_password".equals(operation) || "forgot_password".equals(operation)) {
+            statuses.put(id, "RECOVERY");
+            send(exchange, 200, "{\"resetPasswordUrl\":\"https://example.okta.com/reset_password/XE6wE17zmphl3KqAPFxO\"}");
+        } else if ("expire_password".equals(operation)) {
+            statuses.put(id, "PASSWORD_EXPIRED");
+            send(exchange, 200, user(index));
+        } else {
+            send(exchange, 200, "{}");
+        }
+    }
+
+    private int index(String idOrLogin) {
+        try {
+            int index = idOrLogin.startsWith("00u") ? Integer.parseInt(idOrLogin.substring(3))
+                    : Integer.parseInt(idOrLogin.substring(4, idOrLogin.indexOf('@')));
+            return index < users + created.get() ? index : -1;
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private String user(int index) {
+        String id = userId(index);
+        String status = statuses.get(id);
+        return "{\"id\":\"" + id + "\",\"status\":\"" + (status != null ? status : "ACTIVE") + "\","
+                + "\"created\":\"2015-01-01T00:00:00.000Z\",\"lastUpdated\":\"2015-06-01T00:00:00.000Z\","
+                + "\"profile\":{\"login\":\"user" + index + "@example.com\",\"email\":\"user" + index + "@example.com\","
+                + "\"firstName\":\"First" + index + "\",\"lastName\":\"Last" + index + "\",\"department\":\"Dept" + index % 10 + "\"},"
+                + "\"credentials\":{\"provider\":{\"type\":\"OKTA\",\"name\":\"OKTA\"}},"
+                + "\"_links\":{\"self\":{\"href\":\"http://" + getHost() + PREFIX + "/users/" + id + "\"}}}";
+    }
+
+    private static String session(String id) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return "{\"id\":\"" + id + "\",\"userId\":\"" + userId(0) + "\",\"mfaActive\":false,\"status\":\"ACTIVE\","
+                + "\"expiresAt\":\"" + format.format(new Date(System.currentTimeMillis() + 7200000L)) + "\"}";
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = body.getBytes(UTF8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+
+    private static Map<String, String> query(String query) throws IOException {
+        Map<String, String> params = new LinkedHashMap<String, String>();
+        if (query != null) {
+            for (String param : query.split("&")) {
+                int equals = param.indexOf('=');
+                if (equals > 0) {
+                    params.put(URLDecoder.decode(param.substring(0, equals), "UTF-8"), URLDecoder.decode(param.substring(equals + 1), "UTF-8"));
+                }
+            }
+        }
+        return params;
+    }
+
+    private static String read(InputStream body) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = body.read(buffer)) >= 0) {
+            content.write(buffer, 0, read);
+        }
+        return new String(content.toByteArray(), UTF8);
+    }
+}